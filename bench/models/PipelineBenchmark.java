@@ -0,0 +1,297 @@
+package models;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import edu.princeton.cs.introcs.Picture;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Benchmark of each stage of ComponentImage pipeline: decoding,
+ *         thresholding, labelling (with each of the labelers), statistics and
+ *         the three rendering methods. Stages are measured on the images from
+ *         "images" folder and on synthetic images from SyntheticImages. Just
+ *         as in JMH, each benchmark is first run for a number of warm-up
+ *         iterations, which are not measured, so that the code is compiled
+ *         before measurement. Preparation of the image for each run, eg
+ *         thresholding before labelling, is not measured. For each benchmark
+ *         time and memory allocated by the benchmarking thread are reported
+ *         per pixel, so that results of images of different sizes can be
+ *         compared. Allocations of other threads, eg those of ParallelLabeler,
+ *         are not counted.
+ *
+ *         Running the benchmark (from the project folder, after compiling
+ *         src and bench folders to bin):
+ *
+ *         java -cp bin:lib/stdlib-package.jar models.PipelineBenchmark
+ *         [filter] [iterations]
+ *
+ *         - filter: only benchmarks, whose stage, image or labeler name
+ *         contains it, are run
+ *
+ *         - iterations: number of measured iterations, 5 by default
+ */
+public class PipelineBenchmark {
+	private static final String[] IMAGES = { "boundaries", "largeSquare", "numbers", "randomstuff", "shapes", "sky",
+			"smallAndLarge", "smallStars", "spiral", "stars", "test4" };
+	private static final int WARMUP_ITERATIONS = 3;
+	private static final long ITERATION_NANOS = 200000000L; // minimal time of an iteration
+	private static final double THRESHOLD = 128;
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private final String filter;
+	private final int iterations;
+
+	public PipelineBenchmark(String filter, int iterations) {
+		this.filter = filter;
+		this.iterations = iterations;
+	}
+
+	public static void main(String[] args) {
+		String filter = args.length > 0 ? args[0] : "";
+		int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		new PipelineBenchmark(filter, iterations).run();
+	}
+
+	/**
+	 * benchmark of one stage. setUp() prepares the image and is not
+	 * measured, run() is measured
+	 */
+	private abstract static class Stage {
+		private final String name;
+
+		Stage(String name) {
+			this.name = name;
+		}
+
+		abstract ComponentImage setUp(Input input);
+
+		abstract void run(ComponentImage image);
+	}
+
+	/**
+	 * picture to be benchmarked. Pictures of files are decoded each time, the
+	 * generated ones are copied
+	 */
+	private static class Input {
+		private final String name;
+		private final String fileLocation;
+		private final Picture picture;
+
+		Input(String name, String fileLocation, Picture picture) {
+			this.name = name;
+			this.fileLocation = fileLocation;
+			this.picture = picture;
+		}
+
+		ComponentImage create(ComponentLabeler labeler) {
+			ComponentImage image = fileLocation != null ? new ComponentImage(fileLocation)
+					: new ComponentImage(new Picture(picture));
+			image.setThresholdPixelValue(THRESHOLD);
+			image.setLabeler(labeler);
+			return image;
+		}
+	}
+
+	public void run() {
+		List<Input> inputs = new ArrayList<Input>();
+		for (String image : IMAGES) {
+			inputs.add(new Input(image, "images/" + image + ".jpg", null));
+		}
+		inputs.add(new Input("noise", null, SyntheticImages.noise(1024, 1024, 0.5, 42)));
+		inputs.add(new Input("checkerboard", null, SyntheticImages.checkerboard(1024, 1024, 1)));
+		inputs.add(new Input("spiral", null, SyntheticImages.spiral(1024, 1024)));
+		inputs.add(new Input("tinyObjects", null, SyntheticImages.tinyObjects(1024, 1024, 3)));
+
+		Map<String, ComponentLabeler> labelers = new LinkedHashMap<String, ComponentLabeler>();
+		labelers.put("four", new FourConnectedLabeler());
+		labelers.put("eight", new EightConnectedLabeler());
+		labelers.put("runLength", new RunLengthLabeler(Connectivity.FOUR));
+		labelers.put("block", new BlockLabeler());
+		ParallelLabeler parallel = new ParallelLabeler(new FourConnectedLabeler(),
+				Runtime.getRuntime().availableProcessors());
+		labelers.put("parallel", parallel);
+
+		System.out.println(String.format(Locale.ROOT, "%-16s %-14s %-10s %10s %12s %10s %10s %10s", "stage", "image",
+				"labeler", "pixels", "ns/op", "ns/pixel", "B/pixel", "MB/s"));
+		for (Input input : inputs) {
+			for (Map.Entry<String, ComponentLabeler> labeler : labelers.entrySet()) {
+				List<Stage> stages = labeler.getKey().equals("four") ? stages(labeler.getValue())
+						: labelStage(labeler.getValue());
+				for (Stage stage : stages) {
+					if (input.fileLocation == null && stage.name.equals("decode")) {
+						continue;
+					}
+					String description = stage.name + " " + input.name + " " + labeler.getKey();
+					if (description.contains(filter)) {
+						measure(stage, input, labeler.getKey());
+					}
+				}
+			}
+		}
+		parallel.shutdown();
+	}
+
+	/**
+	 * runs the stage for warm-up iterations and then for measured
+	 * iterations. Each iteration repeats the stage until it takes at least
+	 * ITERATION_NANOS
+	 */
+	private void measure(Stage stage, Input input, String labeler) {
+		long pixels = 0;
+		long nanos = 0;
+		long bytes = 0;
+		long operations = 0;
+		for (int iteration = 0; iteration < WARMUP_ITERATIONS + iterations; iteration++) {
+			long iterationNanos = 0;
+			while (iterationNanos < ITERATION_NANOS) {
+				ComponentImage image = stage.setUp(input);
+				long allocatedBefore = allocatedBytes();
+				long start = System.nanoTime();
+				stage.run(image);
+				long elapsed = System.nanoTime() - start;
+				long allocated = allocatedBytes() - allocatedBefore;
+				// arrays of the image are leased by the next run, as in BatchAnalyzer
+				image.release();
+				iterationNanos += elapsed;
+				if (iteration >= WARMUP_ITERATIONS) {
+					nanos += elapsed;
+					bytes += allocated;
+					operations++;
+					pixels += (long) image.getPicture().width() * image.getPicture().height();
+				}
+			}
+		}
+		System.out.println(String.format(Locale.ROOT, "%-16s %-14s %-10s %10d %12.0f %10.2f %10.2f %10.1f",
+				stage.name, input.name, labeler, pixels / operations, (double) nanos / operations,
+				(double) nanos / pixels, (double) bytes / pixels, bytes / 1e6 / (nanos / 1e9)));
+	}
+
+	/**
+	 *
+	 * @return bytes allocated by the current thread so far, 0 if the JVM
+	 *         cannot tell
+	 */
+	private long allocatedBytes() {
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return 0;
+	}
+
+	/**
+	 *
+	 * @return all stages of the pipeline
+	 */
+	private static List<Stage> stages(final ComponentLabeler labeler) {
+		List<Stage> stages = new ArrayList<Stage>();
+		stages.add(new Stage("decode") {
+			@Override
+			ComponentImage setUp(Input input) {
+				return input.create(labeler);
+			}
+
+			@Override
+			void run(ComponentImage image) {
+				new ComponentImage(image.getFileLocation());
+			}
+		});
+		stages.add(new Stage("threshold") {
+			@Override
+			ComponentImage setUp(Input input) {
+				return input.create(labeler);
+			}
+
+			@Override
+			void run(ComponentImage image) {
+				image.threshold();
+			}
+		});
+		stages.addAll(labelStage(labeler));
+		stages.add(new Stage("statistics") {
+			@Override
+			ComponentImage setUp(Input input) {
+				ComponentImage image = input.create(labeler);
+				image.threshold();
+				image.checkForObjects();
+				return image;
+			}
+
+			// features are summed while the labels are compacted
+			@Override
+			void run(ComponentImage image) {
+				image.analyseObjectsLabels();
+				image.calculateCoordinates();
+			}
+		});
+		stages.add(new Stage("colour") {
+			@Override
+			ComponentImage setUp(Input input) {
+				ComponentImage image = input.create(labeler);
+				image.binaryComponentImage();
+				return image;
+			}
+
+			@Override
+			void run(ComponentImage image) {
+				image.colourComponentImage();
+			}
+		});
+		stages.add(new Stage("highlight") {
+			@Override
+			ComponentImage setUp(Input input) {
+				ComponentImage image = input.create(labeler);
+				image.binaryComponentImage();
+				return image;
+			}
+
+			@Override
+			void run(ComponentImage image) {
+				image.highlightComponentImage();
+			}
+		});
+		stages.add(new Stage("smallestLargest") {
+			@Override
+			ComponentImage setUp(Input input) {
+				ComponentImage image = input.create(labeler);
+				image.binaryComponentImage();
+				return image;
+			}
+
+			@Override
+			void run(ComponentImage image) {
+				image.getSmallestAndLargest();
+			}
+		});
+		return stages;
+	}
+
+	/**
+	 *
+	 * @return labelling stage, ie union-find scan and compaction of labels
+	 */
+	private static List<Stage> labelStage(final ComponentLabeler labeler) {
+		List<Stage> stages = new ArrayList<Stage>();
+		stages.add(new Stage("label") {
+			@Override
+			ComponentImage setUp(Input input) {
+				ComponentImage image = input.create(labeler);
+				image.threshold();
+				return image;
+			}
+
+			@Override
+			void run(ComponentImage image) {
+				image.checkForObjects();
+				image.analyseObjectsLabels();
+			}
+		});
+		return stages;
+	}
+
+}
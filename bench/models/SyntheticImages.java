@@ -0,0 +1,104 @@
+package models;
+
+import java.awt.Color;
+import java.util.Random;
+
+import edu.princeton.cs.introcs.Picture;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Generators of black and white pictures used in benchmarks. Each of
+ *         them stresses labelling in a different way: random noise produces
+ *         many irregular objects, checkerboard squares touch only at the
+ *         corners, spiral is a single object, which joins very long chains of
+ *         sites, and many tiny objects produce thousands of labels
+ */
+public class SyntheticImages {
+
+	/**
+	 * 
+	 * @return picture with white pixels placed at random
+	 */
+	public static Picture noise(int width, int height, double density, long seed) {
+		Random random = new Random(seed);
+		Picture picture = new Picture(width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				picture.set(x, y, random.nextDouble() < density ? Color.WHITE : Color.BLACK);
+			}
+		}
+		return picture;
+	}
+
+	/**
+	 * 
+	 * @return checkerboard with squares of given side
+	 */
+	public static Picture checkerboard(int width, int height, int side) {
+		Picture picture = new Picture(width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				picture.set(x, y, (x / side + y / side) % 2 == 0 ? Color.WHITE : Color.BLACK);
+			}
+		}
+		return picture;
+	}
+
+	/**
+	 * 
+	 * @return square spiral drawn with white lines one pixel wide, separated
+	 *         with black gaps one pixel wide
+	 */
+	public static Picture spiral(int width, int height) {
+		Picture picture = new Picture(width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				picture.set(x, y, Color.BLACK);
+			}
+		}
+		int left = 0, top = 0, right = width - 1, bottom = height - 1;
+		while (left <= right && top <= bottom) {
+			for (int x = left; x <= right; x++) {
+				picture.set(x, top, Color.WHITE);
+			}
+			for (int y = top; y <= bottom; y++) {
+				picture.set(right, y, Color.WHITE);
+			}
+			if (top + 2 <= bottom) {
+				for (int x = left; x <= right; x++) {
+					picture.set(x, bottom, Color.WHITE);
+				}
+			}
+			if (left + 2 <= right) {
+				for (int y = top + 2; y <= bottom; y++) {
+					picture.set(left, y, Color.WHITE);
+				}
+			}
+			left += 2;
+			top += 2;
+			right -= 2;
+			bottom -= 2;
+			// the next turn starts from the end of the left side
+			if (left <= right && top <= bottom) {
+				picture.set(left - 1, top, Color.WHITE);
+			}
+		}
+		return picture;
+	}
+
+	/**
+	 * 
+	 * @return grid of single white pixels, separated by black gaps
+	 */
+	public static Picture tinyObjects(int width, int height, int spacing) {
+		Picture picture = new Picture(width, height);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				picture.set(x, y, x % spacing == 0 && y % spacing == 0 ? Color.WHITE : Color.BLACK);
+			}
+		}
+		return picture;
+	}
+
+}
@@ -0,0 +1,503 @@
+package controllers;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import models.AdaptiveThreshold;
+import models.BufferPool;
+import models.ComponentImage;
+import models.RegionFeatures;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         This class counts and locates objects in many images without the
+ *         GUI, so it can be run on machines without a display. Images are
+ *         decoded and labelled on two separate pools of threads, so that
+ *         decoding of one image overlaps with labelling of another. The
+ *         number of images decoded, but not labelled yet is bounded, so that
+ *         memory use does not depend on the number of images. For each image
+ *         the number of objects and the bounding box and shape features
+ *         (centroid, orientation, perimeter, extent and Euler number) of each
+ *         object are written as CSV or JSON lines. Once all images are processed,
+ *         throughput is reported.
+ *
+ *         Running the app:
+ *
+ *         java controllers.BatchAnalyzer &lt;directory or glob&gt;
+ *         &lt;threshold&gt; [-threads n] [-format csv|json] [-output file]
+ *         [-adaptive mean|niblack|sauvola] [-window n] [-minArea n]
+ *         [-maxArea n]
+ *
+ *         - directory: all "jpg", "gif", "png" and "bmp" files in it are
+ *         processed. glob, eg "images/*.jpg" or "scans/**.png", is matched
+ *         against the paths of the files under the directory preceding the
+ *         first wildcard
+ *
+ *         - threshold: threshold pixel value between 0 and 255, as set with
+ *         the slider in ImageAnalyzer, or "auto" to choose it for each image
+ *         with Otsu's method
+ *
+ *         - threads: size of each pool, number of processors by default
+ *
+ *         - format: csv (default) - one line per object, with the image
+ *         dimensions, threshold and objects count repeated, json - one line
+ *         per image
+ *
+ *         - output: file to write the results to, standard output by default.
+ *         Errors and throughput are written to standard error
+ *
+ *         - adaptive: each pixel is compared with the mean, Niblack's or
+ *         Sauvola's threshold of the window around it, instead of the
+ *         threshold, for unevenly lit images
+ *
+ *         - window: side of the window of adaptive threshold, 31 by default
+ *
+ *         - minArea, maxArea: objects with fewer or more pixels, eg specks of
+ *         noise, are dropped and not written, none by default
+ */
+public class BatchAnalyzer {
+	private static final String[] EXTENSIONS = { "jpg", "gif", "png", "bmp" };
+	private final double thresholdPixelValue;
+	private static final int DEFAULT_WINDOW = 31;
+	private boolean automaticThreshold; // threshold chosen for each image
+	private AdaptiveThreshold adaptiveThreshold; // threshold of each pixel
+	private int minimumArea; // smaller objects are dropped
+	private int maximumArea = Integer.MAX_VALUE; // larger objects are dropped
+	private final int threads;
+	private final boolean json;
+	private final PrintStream out;
+	// label arrays of the labelled images, leased by the next ones
+	private BufferPool bufferPool = new BufferPool(Runtime.getRuntime().maxMemory() / 8);
+	private final AtomicLong pixels = new AtomicLong(); // pixels of the processed images
+	private final AtomicInteger processed = new AtomicInteger(); // number of processed images
+
+	/**
+	 * Initialise fields
+	 *
+	 * @param thresholdPixelValue
+	 *            threshold pixel value used to binarise the images
+	 * @param threads
+	 *            size of the pools decoding and labelling the images
+	 * @param json
+	 *            true to write JSON lines, false to write CSV
+	 * @param out
+	 *            stream the results are written to
+	 */
+	public BatchAnalyzer(double thresholdPixelValue, int threads, boolean json, PrintStream out) {
+		this.thresholdPixelValue = thresholdPixelValue;
+		this.threads = threads;
+		this.json = json;
+		this.out = out;
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			usage();
+			return;
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean json = false;
+		PrintStream out = System.out;
+		double thresholdPixelValue = 0;
+		boolean automaticThreshold = args[1].equals("auto");
+		AdaptiveThreshold.Method method = null;
+		int window = DEFAULT_WINDOW;
+		int minimumArea = 0;
+		int maximumArea = Integer.MAX_VALUE;
+		try {
+			if (!automaticThreshold) {
+				thresholdPixelValue = Double.parseDouble(args[1]);
+			}
+			for (int i = 2; i < args.length; i += 2) {
+				if (i + 1 == args.length) {
+					usage();
+					return;
+				}
+				if (args[i].equals("-threads")) {
+					threads = Integer.parseInt(args[i + 1]);
+				} else if (args[i].equals("-format")) {
+					if (!args[i + 1].equals("csv") && !args[i + 1].equals("json")) {
+						usage();
+						return;
+					}
+					json = args[i + 1].equals("json");
+				} else if (args[i].equals("-output")) {
+					out = new PrintStream(args[i + 1], "UTF-8");
+				} else if (args[i].equals("-adaptive")) {
+					method = AdaptiveThreshold.Method.valueOf(args[i + 1].toUpperCase(Locale.ROOT));
+				} else if (args[i].equals("-window")) {
+					window = Integer.parseInt(args[i + 1]);
+				} else if (args[i].equals("-minArea")) {
+					minimumArea = Integer.parseInt(args[i + 1]);
+				} else if (args[i].equals("-maxArea")) {
+					maximumArea = Integer.parseInt(args[i + 1]);
+				} else {
+					usage();
+					return;
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			// number or method, which cannot be parsed
+			usage();
+			return;
+		} catch (FileNotFoundException e) {
+			System.err.println("Cannot write to file: " + e.getMessage());
+			return;
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			return;
+		}
+		if (thresholdPixelValue < 0 || thresholdPixelValue > 255 || threads < 1 || window < 1
+				|| minimumArea < 0 || maximumArea < 0) {
+			usage();
+			return;
+		}
+		try {
+			List<Path> files = findImages(args[0]);
+			BatchAnalyzer analyzer = new BatchAnalyzer(thresholdPixelValue, threads, json, out);
+			analyzer.setAutomaticThreshold(automaticThreshold);
+			analyzer.setMinimumArea(minimumArea);
+			analyzer.setMaximumArea(maximumArea);
+			if (method != null) {
+				analyzer.setAdaptiveThreshold(new AdaptiveThreshold(method, window));
+			}
+			long start = System.nanoTime();
+			analyzer.process(files);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.err.println(String.format(Locale.ROOT,
+					"%d images, %.1f megapixels in %.2f s: %.2f images/s, %.2f MP/s", analyzer.getProcessed(), analyzer.getPixels() / 1e6, seconds, analyzer.getProcessed() / seconds,
+					analyzer.getPixels() / 1e6 / seconds));
+		} catch (IOException e) {
+			System.err.println("Cannot read images: " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * decodes and labels all of the images. Decoding tasks hand the decoded
+	 * images over to labelling tasks. A new image is only decoded, when there
+	 * are less than two images per thread decoded or waiting to be labelled
+	 *
+	 * @param files
+	 *            images to be processed
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the images
+	 */
+	public void process(List<Path> files) throws InterruptedException {
+		final ExecutorService decoders = Executors.newFixedThreadPool(threads);
+		final ExecutorService labellers = Executors.newFixedThreadPool(threads);
+		final Semaphore inFlight = new Semaphore(2 * threads);
+		final CountDownLatch done = new CountDownLatch(files.size());
+		if (!json) {
+			out.println("file,width,height,threshold,count,object,minX,minY,maxX,maxY,pixels,"
+					+ "centroidX,centroidY,orientation,perimeter,extent,euler");
+		}
+		try {
+			for (final Path file : files) {
+				inFlight.acquire();
+				decoders.execute(new Runnable() {
+					@Override
+					public void run() {
+						// the image is only counted as done here, if it is not handed
+						// over to the labelling task, eg when decoding runs out of memory
+						boolean handedOver = false;
+						try {
+							final ComponentImage componentImage = new ComponentImage(file.toString());
+							componentImage.setBufferPool(bufferPool);
+							labellers.execute(new Runnable() {
+								@Override
+								public void run() {
+									try {
+										componentImage.setThresholdPixelValue(thresholdPixelValue);
+										componentImage.setAutomaticThreshold(automaticThreshold);
+										componentImage.setAdaptiveThreshold(adaptiveThreshold);
+										componentImage.setMinimumArea(minimumArea);
+										componentImage.setMaximumArea(maximumArea);
+										componentImage.labelComponents();
+										write(file, componentImage);
+										pixels.addAndGet((long) componentImage.getPicture().width()
+												* componentImage.getPicture().height());
+										processed.incrementAndGet();
+									} catch (RuntimeException e) {
+										System.err.println("Cannot label " + file + ": " + e.getMessage());
+									} finally {
+										// the labels of the next image fill the same array
+										componentImage.release();
+										inFlight.release();
+										done.countDown();
+									}
+								}
+							});
+							handedOver = true;
+						} catch (RuntimeException e) {
+							System.err.println("Cannot decode " + file + ": " + e.getMessage());
+						} finally {
+							if (!handedOver) {
+								inFlight.release();
+								done.countDown();
+							}
+						}
+					}
+				});
+			}
+			done.await();
+		} finally {
+			decoders.shutdownNow();
+			labellers.shutdownNow();
+		}
+	}
+
+	/**
+	 * setter for automaticThreshold
+	 *
+	 * @param automaticThreshold
+	 *            true to choose the threshold pixel value of each image with
+	 *            Otsu's method, instead of using the one passed to the
+	 *            constructor
+	 */
+	public void setAutomaticThreshold(boolean automaticThreshold) {
+		this.automaticThreshold = automaticThreshold;
+	}
+
+	/**
+	 * setter for adaptiveThreshold
+	 *
+	 * @param adaptiveThreshold
+	 *            threshold computed for each pixel of each image, or null to
+	 *            use the same threshold for all pixels
+	 */
+	public void setAdaptiveThreshold(AdaptiveThreshold adaptiveThreshold) {
+		this.adaptiveThreshold = adaptiveThreshold;
+	}
+
+	/**
+	 * setter for minimumArea
+	 *
+	 * @param minimumArea
+	 *            pixels count of the smallest objects to be written, eg to
+	 *            drop specks of noise
+	 */
+	public void setMinimumArea(int minimumArea) {
+		this.minimumArea = minimumArea;
+	}
+
+	/**
+	 * setter for maximumArea
+	 *
+	 * @param maximumArea
+	 *            pixels count of the largest objects to be written
+	 */
+	public void setMaximumArea(int maximumArea) {
+		this.maximumArea = maximumArea;
+	}
+
+	/**
+	 * setter for bufferPool. By default each analyzer has a pool of its own
+	 *
+	 * @param bufferPool
+	 *            pool the label arrays of the images are leased from, eg
+	 *            shared with other analyzers
+	 */
+	public void setBufferPool(BufferPool bufferPool) {
+		if (bufferPool != null) {
+			this.bufferPool = bufferPool;
+		}
+	}
+
+	/**
+	 *
+	 * @return number of images processed so far
+	 */
+	public int getProcessed() {
+		return processed.get();
+	}
+
+	/**
+	 *
+	 * @return number of pixels of the images processed so far
+	 */
+	public long getPixels() {
+		return pixels.get();
+	}
+
+	/**
+	 * writes the objects count and the bounding boxes and shape features of
+	 * the objects found in one image. All lines of one image are written at once
+	 */
+	private void write(Path file, ComponentImage componentImage) {
+		int width = componentImage.getPicture().width();
+		int height = componentImage.getPicture().height();
+		int count = componentImage.countComponents();
+		String threshold = format(componentImage);
+		// min y, max y, min x, max x, pixels count and label
+		int[][] objects = componentImage.getObjectsProperties();
+		RegionFeatures features = componentImage.getRegionFeatures();
+		StringBuilder lines = new StringBuilder();
+		if (json) {
+			lines.append("{\"file\":\"").append(escape(file.toString())).append("\",\"width\":").append(width)
+					.append(",\"height\":").append(height).append(",\"threshold\":")
+					.append(adaptiveThreshold == null ? threshold : "\"" + threshold + "\"")
+					.append(",\"count\":").append(count)
+					.append(",\"objects\":[");
+			for (int i = 0; i < objects.length; i++) {
+				lines.append(i == 0 ? "" : ",").append("{\"minX\":").append(objects[i][2]).append(",\"minY\":")
+						.append(objects[i][0]).append(",\"maxX\":").append(objects[i][3]).append(",\"maxY\":")
+						.append(objects[i][1]).append(",\"pixels\":").append(objects[i][4])
+						.append(String.format(Locale.ROOT,
+								",\"centroidX\":%.3f,\"centroidY\":%.3f,\"orientation\":%.4f,\"perimeter\":%d,"
+										+ "\"extent\":%.4f,\"euler\":%d}",
+								features.getCentroidX(i), features.getCentroidY(i), features.getOrientation(i),
+								features.getPerimeter(i), features.getExtent(i), features.getEulerNumber(i)));
+			}
+			lines.append("]}").append(System.lineSeparator());
+		} else {
+			String image = csv(file.toString()) + "," + width + "," + height + "," + threshold + "," + count + ",";
+			if (objects.length == 0) {
+				lines.append(image).append(",,,,,,,,,,,").append(System.lineSeparator());
+			}
+			for (int i = 0; i < objects.length; i++) {
+				lines.append(image).append(i).append(',').append(objects[i][2]).append(',').append(objects[i][0])
+						.append(',').append(objects[i][3]).append(',').append(objects[i][1]).append(',')
+						.append(objects[i][4])
+						.append(String.format(Locale.ROOT, ",%.3f,%.3f,%.4f,%d,%.4f,%d", features.getCentroidX(i),
+								features.getCentroidY(i), features.getOrientation(i), features.getPerimeter(i),
+								features.getExtent(i), features.getEulerNumber(i)))
+						.append(System.lineSeparator());
+			}
+		}
+		synchronized (out) {
+			out.print(lines);
+		}
+	}
+
+	/**
+	 * finds the images to be processed
+	 *
+	 * @param location
+	 *            directory or glob
+	 * @return sorted paths of the images
+	 * @throws IOException
+	 *             if a directory cannot be read
+	 */
+	public static List<Path> findImages(String location) throws IOException {
+		final List<Path> files = new ArrayList<Path>();
+		Path directory = Paths.get(location);
+		if (Files.isDirectory(directory)) {
+			DirectoryStream<Path> stream = Files.newDirectoryStream(directory);
+			try {
+				for (Path file : stream) {
+					if (Files.isRegularFile(file) && isImage(file)) {
+						files.add(file);
+					}
+				}
+			} finally {
+				stream.close();
+			}
+		} else {
+			// the directory preceding the first wildcard is searched
+			int wildcard = location.length();
+			for (char c : new char[] { '*', '?', '[', '{' }) {
+				if (location.indexOf(c) >= 0) {
+					wildcard = Math.min(wildcard, location.indexOf(c));
+				}
+			}
+			int separator = Math.max(location.lastIndexOf('/', wildcard), location.lastIndexOf('\\', wildcard));
+			// empty path is the current directory, paths found under it stay
+			// relative, just like the glob
+			Path root = Paths.get(separator < 0 ? "" : location.substring(0, separator + 1));
+			final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + location);
+			if (Files.isDirectory(root)) {
+				Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+						if (attributes.isRegularFile() && matcher.matches(file)) {
+							files.add(file);
+						}
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			}
+		}
+		Collections.sort(files);
+		return files;
+	}
+
+	private static boolean isImage(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		for (String extension : EXTENSIONS) {
+			if (name.endsWith("." + extension)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * threshold pixel value without the fraction, if it is a whole number, or
+	 * method and window of adaptive threshold, eg "sauvola/31"
+	 */
+	private static String format(ComponentImage componentImage) {
+		AdaptiveThreshold adaptive = componentImage.getAdaptiveThreshold();
+		if (adaptive != null) {
+			return adaptive.getMethod().name().toLowerCase(Locale.ROOT) + "/" + adaptive.getWindow();
+		}
+		double threshold = componentImage.getThresholdPixelValue();
+		return threshold == Math.floor(threshold) ? Integer.toString((int) threshold) : Double.toString(threshold);
+	}
+
+	/**
+	 * escapes the text to be written as a JSON string - quotes and
+	 * backslashes are preceded by a backslash, control characters, eg new
+	 * lines or tabs in file names, are written as unicode escapes of four
+	 * hex digits
+	 */
+	static String escape(String text) {
+		StringBuilder escaped = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				escaped.append('\\').append(c);
+			} else if (c < 0x20) {
+				escaped.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+			} else {
+				escaped.append(c);
+			}
+		}
+		return escaped.toString();
+	}
+
+	private static String csv(String text) {
+		return text.contains(",") || text.contains("\"") ? "\"" + text.replace("\"", "\"\"") + "\"" : text;
+	}
+
+	private static void usage() {
+		System.err.println("usage: java controllers.BatchAnalyzer <directory or glob> <threshold|auto>"
+				+ " [-threads n] [-format csv|json] [-output file] [-adaptive mean|niblack|sauvola] [-window n]"
+				+ " [-minArea n] [-maxArea n]");
+	}
+
+}
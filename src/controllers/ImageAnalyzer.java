@@ -6,17 +6,38 @@ import java.awt.EventQueue;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JLayeredPane;
+import javax.swing.JOptionPane;
+import javax.swing.JProgressBar;
 import javax.swing.JSlider;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
+import edu.princeton.cs.introcs.Picture;
 import models.ComponentImage;
+import models.ImageCache;
+import models.RegionFeatures;
+import models.ThresholdSweep;
 
 /**
  * @author Pawel Paszki 
@@ -41,7 +62,12 @@ import models.ComponentImage;
  *         
  *         - when the image is loaded, "Binarise image" button is enabled 
  *         along with slider, which allows to set the threshold value between 
- *         0 and 255. image dimensions are also displayed
+ *         0 and 255. image dimensions are also displayed. When "Automatic
+ *         threshold" is selected, the slider is disabled and the threshold
+ *         is chosen with Otsu's method, once the image is binarised. When
+ *         "Live preview" is selected, moving the slider shows the objects of a
+ *         smaller copy of the image, which fits the container, at most once a
+ *         frame, and the image is binarised, once the slider stops
  *         
  *         - when "Binarise image" button is pressed - image is being processed:
  *        threshold pixel value is set to the value read from the slider at the 
@@ -49,15 +75,27 @@ import models.ComponentImage;
  *        images are considered white. objects' count is displayed and if the
  *        number of distinct objects in the image is greater than 1 - "ShowSmallest-
  *        AndLargest" button is enabled. "Paint objects", "Highlight objects" and 
- *        "Reset image" buttons are enabled regardless of the number of distinct objects
+ *        "Reset image" buttons are enabled regardless of the number of distinct objects.
+ *        The image can be binarised again with another threshold at any time
  *        
- *        - pressing "Paint objects" leaves enabled "Load image", "Reset image" and 
- *        "Load image" buttons. Distinct objects are being painted with random colours
+ *        - pressing "Paint objects" shows distinct objects painted with random colours
  *        
- *        - when "Highlight objects" button is pressed - all distinct objects are 
- *        surrounded by red boxes. 
+ *        - when "Highlight objects" button is pressed - all distinct objects in the
+ *        view shown are surrounded by red boxes. 
  *        
- *        - "Reset image" button resets the image with its original path 
+ *        - "Reset image" button shows the image as loaded 
+ *        
+ *        - clicking on an object of the binarised image shows its size, centre,
+ *        perimeter, extent and number of holes. Clicking on the background
+ *        shows the nearest object
+ *        
+ *        Views are rendered from the labels of the objects, so switching between
+ *        them does not read or label the image again
+ *        
+ *        Loading, binarising and rendering the views run on a worker thread, so
+ *        the window is not frozen on large images. The progress bar shows the
+ *        stage of the running job. Loading another image, binarising again or
+ *        resetting the image stops the running job
  *
  */
 public class ImageAnalyzer {
@@ -66,8 +104,10 @@ public class ImageAnalyzer {
 	private ComponentImage componentImage; // instance of ComponentImage
 
 	private JLabel image; // image to be displayed and processed
+	private Picture shown; // picture of the image, never changed once shown
 	private JLabel objectsCount; // objects count
 	private JLabel smallestLargest;
+	private JLabel objectDetails; // features of the object clicked on
 	private JLayeredPane imagePanel; // container displaying the image
 	private JButton loadImage;
 	private JButton reset;
@@ -79,6 +119,27 @@ public class ImageAnalyzer {
 	private JLabel dimensions; // label showing object's dimensions
 	private JSlider thresholdAjustment;
 	private JLabel sliderLabel;
+	private JCheckBox automaticThreshold; // threshold chosen with Otsu's method
+	// objects of a small copy of the image are shown while the slider is moved
+	private JCheckBox livePreview;
+	private ComponentImage proxy; // small copy of the image for live preview
+	private Timer previewTimer; // limits the previews to one a frame
+	private ThresholdSweep thresholdSweep; // objects count at each threshold
+	private boolean sweepOfProxy; // counts are of the proxy, not of the image
+	// decoded images, so that loading an image again does not decode the file
+	private static final int IMAGE_WIDTH = 1000; // size of the image shown
+	private static final int IMAGE_HEIGHT = 540;
+	private static final int PREVIEW_DELAY = 16; // milliseconds, ie about 60 fps
+	private ImageCache imageCache = new ImageCache(Runtime.getRuntime().maxMemory() / 4);
+	private JProgressBar progress; // progress of the running job
+	// jobs are run one at a time, so that they never use the same image at once
+	private ExecutorService worker = Executors.newSingleThreadExecutor();
+	private Job job; // running job, null if there is none
+	// cancelled job, which may still be changing the image on the worker,
+	// until it stops at its next stage, null if there is none
+	private Job cancelled;
+	private boolean labelled; // objects of the image are labelled
+	private int objects; // number of objects found by the last binarisation
 	
 	public static void main(String[] args) {
 		
@@ -146,6 +207,11 @@ public class ImageAnalyzer {
 		objectsCount.setFont(new Font("Arial", Font.ITALIC, 16));
 		objectsCount.setForeground(new Color(0, 255, 35)); // font color
 
+		objectDetails = new JLabel();
+		objectDetails.setBounds(640, 120, 620, 25);
+		objectDetails.setFont(new Font("Arial", Font.ITALIC, 14));
+		objectDetails.setForeground(new Color(0, 255, 35));
+
 		smallestLargest = new JLabel(new ImageIcon("images/smallestLargest.jpg"));
 		smallestLargest.setBounds(850, 65, 410, 50);
 		smallestLargest.setVisible(false);
@@ -168,6 +234,25 @@ public class ImageAnalyzer {
 		thresholdAjustment.setAlignmentX(Component.CENTER_ALIGNMENT);
 		thresholdAjustment.setVisible(false);
 
+		automaticThreshold = new JCheckBox("Automatic threshold");
+		automaticThreshold.setBounds(10, 125, 200, 20);
+		automaticThreshold.setFont(new Font("Arial", Font.ITALIC, 14));
+		automaticThreshold.setForeground(new Color(0, 255, 35));
+		automaticThreshold.setOpaque(false);
+		automaticThreshold.setVisible(false);
+
+		livePreview = new JCheckBox("Live preview");
+		livePreview.setBounds(430, 125, 200, 20);
+		livePreview.setFont(new Font("Arial", Font.ITALIC, 14));
+		livePreview.setForeground(new Color(0, 255, 35));
+		livePreview.setOpaque(false);
+		livePreview.setVisible(false);
+
+		progress = new JProgressBar(0, 100);
+		progress.setBounds(220, 125, 200, 20);
+		progress.setStringPainted(true);
+		progress.setVisible(false);
+
 		imagePanel = new JLayeredPane();
 		imagePanel = new JLayeredPane();
 		imagePanel.setBounds(145, 150, 1000, 520);
@@ -189,14 +274,75 @@ public class ImageAnalyzer {
 		mainWindow.add(imagePanel);
 		mainWindow.add(sliderLabel);
 		mainWindow.add(thresholdAjustment);
+		mainWindow.add(automaticThreshold);
+		mainWindow.add(livePreview);
+		mainWindow.add(progress);
 		mainWindow.add(smallestLargest);
+		mainWindow.add(objectDetails);
+
+		// objects count for the threshold is shown, while the slider is moved
+		thresholdAjustment.addChangeListener(new ChangeListener() {
+
+			@Override
+			public void stateChanged(ChangeEvent arg0) {
+				updateSliderLabel();
+				if (livePreview.isSelected() && proxy != null && !automaticThreshold.isSelected()) {
+					if (thresholdAjustment.getValueIsAdjusting()) {
+						// full-size image is labelled, once the slider stops
+						cancelJob();
+						labelled = false;
+						enableViews();
+						if (!previewTimer.isRunning()) {
+							previewTimer.start();
+						}
+					} else {
+						previewTimer.stop();
+						binariseImage();
+					}
+				}
+			}
+
+		});
+
+		// features of the object clicked on are shown, once the image is
+		// labelled
+		imagePanel.addMouseListener(new MouseAdapter() {
+
+			@Override
+			public void mouseClicked(MouseEvent event) {
+				showObjectDetails(event.getX(), event.getY());
+			}
+
+		});
+
+		// while the slider is moved, the preview is shown at most once a frame
+		previewTimer = new Timer(PREVIEW_DELAY, new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent arg0) {
+				if (proxy != null) {
+					showPicture(proxy.renderThreshold(thresholdAjustment.getValue()));
+				}
+			}
+
+		});
+		previewTimer.setRepeats(false);
+
+		// slider is not used, when the threshold is chosen automatically
+		automaticThreshold.addActionListener(new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent arg0) {
+				thresholdAjustment.setEnabled(!automaticThreshold.isSelected());
+			}
+
+		});
 
 		// action to be taken, when loadImage button is pressed
 		loadImage.addActionListener(new ActionListener() {
 
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
-				imagePanel.removeAll();
 				// slightly modified code taken from:
 				// https://docs.oracle.com/javase/tutorial/uiswing/components/filechooser.html
 				JFileChooser chooser = new JFileChooser();
@@ -206,56 +352,76 @@ public class ImageAnalyzer {
 				// ^^^^^^^^^^^^^
 				if (returnVal == JFileChooser.APPROVE_OPTION) {
 					setImagePath(chooser.getSelectedFile().getAbsolutePath());
-					if (returnVal == 0) {
-						componentImage = new ComponentImage(getImagePath());
-						image = componentImage.getPicture().getJLabel();
-						image.setSize(1000, 540);
-						imagePanel.add(image);
-						imagePanel.moveToFront(image);
-						binarise.setEnabled(true);
-						dimensions.setVisible(true);
-						addColours.setEnabled(false);
-						highlightObjects.setEnabled(false);
-						reset.setEnabled(false);
-						showSmallestAndLargest.setEnabled(false);
-						smallestLargest.setVisible(false);
-						objectsCount.setVisible(false);
-						thresholdAjustment.setVisible(true);
-						sliderLabel.setVisible(true);
-						dimensions.setText("<html>image dimensions: <br>" + componentImage.getPicture().width()
-								+ " (w) x " + componentImage.getPicture().height() + " (h)</html>");
-					}
+					final String path = getImagePath();
+					imagePanel.removeAll();
+					imagePanel.repaint();
+					proxy = null;
+					labelled = false;
+					objectDetails.setText("");
+					binarise.setEnabled(false);
+					reset.setEnabled(false);
+					smallestLargest.setVisible(false);
+					objectsCount.setVisible(false);
+					// image is decoded and objects are counted for all
+					// thresholds at once, so moving the slider shows the count
+					// straight away. They are counted on the proxy, so the
+					// sweep takes the same time and memory for an image of
+					// any size (also for the images loaded from the cache) and
+					// the counts are exact for the images, which fit the window
+					submit(new Job("loading") {
+						private ComponentImage loaded;
+						private ThresholdSweep sweep;
+						private ComponentImage small;
+
+						@Override
+						protected Picture doInBackground() {
+							stageStarted("decode", 0);
+							loaded = imageCache.load(path);
+							stageStarted("preview", 50);
+							small = loaded.createProxy(IMAGE_WIDTH, IMAGE_HEIGHT);
+							stageStarted("sweep", 70);
+							sweep = small.sweepThresholds();
+							return loaded.getPicture();
+						}
+
+						@Override
+						protected void finished(Picture picture) {
+							// jobs of the previous image ran on the same worker
+							// and are finished, so its labels can be reused
+							if (componentImage != null) {
+								componentImage.release();
+							}
+							componentImage = loaded;
+							thresholdSweep = sweep;
+							sweepOfProxy = small.getPicture().width() < picture.width()
+								|| small.getPicture().height() < picture.height();
+							proxy = small;
+							showPicture(picture);
+							binarise.setEnabled(true);
+							dimensions.setVisible(true);
+							reset.setEnabled(false);
+							thresholdAjustment.setVisible(true);
+							sliderLabel.setVisible(true);
+							automaticThreshold.setVisible(true);
+							livePreview.setVisible(true);
+							dimensions.setText("<html>image dimensions: <br>" + picture.width() + " (w) x "
+									+ picture.height() + " (h)</html>");
+							updateSliderLabel();
+						}
+					});
 				}
 
 			}
 
 		});
 
-		// action to be taken, when binarise button is pressed
+		// action to be taken, when binarise button is pressed. Binarising
+		// again, before the image is binarised, stops the previous job
 		binarise.addActionListener(new ActionListener() {
 
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
-				componentImage = new ComponentImage(getImagePath());
-				// there is no need to update threshold pixel value, unless the
-				// picture is going to be binarised:
-				componentImage.setThresholdPixelValue(thresholdAjustment.getValue());
-				image = componentImage.binaryComponentImage().getJLabel();
-				image.setSize(1000, 540);
-				imagePanel.add(image);
-				imagePanel.moveToFront(image);
-				addColours.setEnabled(true);
-				binarise.setEnabled(false);
-				reset.setEnabled(true);
-				highlightObjects.setEnabled(true);
-				// showing smallest and largest objects only possible, if 
-				// number of objects on an image is greater than 1
-				if (componentImage.countComponents() > 1) {
-					showSmallestAndLargest.setEnabled(true);
-					smallestLargest.setVisible(true);
-				}
-				objectsCount.setVisible(true);
-				objectsCount.setText("<html>number of objects: <br>" + componentImage.countComponents() + " </html>");
+				binariseImage();
 			}
 
 		});
@@ -265,13 +431,15 @@ public class ImageAnalyzer {
 
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
-				image = componentImage.colourComponentImage().getJLabel();
-				image.setSize(1000, 540);
-				imagePanel.add(image);
-				imagePanel.moveToFront(image);
-				addColours.setEnabled(false);
-				showSmallestAndLargest.setEnabled(false);
-				reset.setEnabled(true);
+				final ComponentImage current = componentImage;
+				submit(new Job("painting") {
+
+					@Override
+					protected Picture doInBackground() {
+						return current.colourComponentImage();
+					}
+
+				});
 			}
 
 		});
@@ -280,37 +448,31 @@ public class ImageAnalyzer {
 		highlightObjects.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
+				final ComponentImage current = componentImage;
+				// boxes are drawn over a copy of the view being shown
+				final Picture base = shown == current.getOriginal()
+						|| shown.width() != current.getOriginal().width() ? null : shown;
+				submit(new Job("highlighting") {
+
+					@Override
+					protected Picture doInBackground() {
+						return current.highlightComponentImage(base);
+					}
 
-				image = componentImage.highlightComponentImage().getJLabel();
-				image.setSize(1000, 540);
-				imagePanel.add(image);
-				imagePanel.moveToFront(image);
-				binarise.setEnabled(false);
-				addColours.setEnabled(false);
-				highlightObjects.setEnabled(false);
-				showSmallestAndLargest.setEnabled(false);
-				reset.setEnabled(true);
-				showSmallestAndLargest.setEnabled(false);
-
+				});
 			}
 		});
 
-		// action to be taken, when highlightObjects button is pressed
+		// action to be taken, when reset button is pressed. Loaded picture
+		// is never changed, so it is shown without reading the file
 		reset.addActionListener(new ActionListener() {
 
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
-				componentImage = new ComponentImage(getImagePath());
-				image = componentImage.getPicture().getJLabel();
-				image.setSize(1000, 540);
-				imagePanel.add(image);
-				imagePanel.moveToFront(image);
+				cancelJob();
+				showPicture(componentImage.getOriginal());
 				binarise.setEnabled(true);
-				addColours.setEnabled(false);
-				highlightObjects.setEnabled(false);
 				reset.setEnabled(false);
-				showSmallestAndLargest.setEnabled(false);
-				smallestLargest.setVisible(false);
 			}
 		});
 
@@ -319,18 +481,298 @@ public class ImageAnalyzer {
 
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
-				image = componentImage.getSmallestAndLargest().getJLabel();
-				image.setSize(1000, 540);
-				imagePanel.add(image);
-				imagePanel.moveToFront(image);
-				binarise.setEnabled(true);
-				addColours.setEnabled(false);
-				highlightObjects.setEnabled(false);
+				final ComponentImage current = componentImage;
+				submit(new Job("finding smallest and largest") {
+
+					@Override
+					protected Picture doInBackground() {
+						return current.getSmallestAndLargest();
+					}
+
+				});
+			}
+		});
+
+	}
+
+	/**
+	 * image processing, which is run on the worker thread, so that the window
+	 * is not frozen while it is running. Each stage is shown in the progress
+	 * bar and the job stops at the next stage, once it is cancelled. Only the
+	 * finished picture is passed to the event dispatch thread, where it is
+	 * shown
+	 */
+	private abstract class Job extends SwingWorker<Picture, String> implements ComponentImage.ProgressListener {
+		private final String title;
+
+		/**
+		 * Initialise fields
+		 * 
+		 * @param title
+		 *            shown in the progress bar while the job is running
+		 */
+		Job(String title) {
+			this.title = title;
+		}
+
+		/**
+		 * this method is called on the worker thread before each stage of the
+		 * job
+		 * 
+		 * @throws CancellationException
+		 *             if the job is cancelled
+		 */
+		@Override
+		public void stageStarted(String stage, int percent) {
+			if (isCancelled()) {
+				throw new CancellationException();
+			}
+			publish(title + ": " + stage);
+			setProgress(percent);
+		}
+
+		@Override
+		protected void process(List<String> stages) {
+			if (job == this) {
+				progress.setString(stages.get(stages.size() - 1));
+			}
+		}
+
+		@Override
+		protected void done() {
+			// results of a job replaced by another one are not shown
+			if (job != this) {
+				return;
+			}
+			job = null;
+			progress.setVisible(false);
+			try {
+				if (!isCancelled()) {
+					finished(get());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				JOptionPane.showMessageDialog(mainWindow, "Image could not be processed: " + e.getCause(), title,
+						JOptionPane.ERROR_MESSAGE);
+			}
+			enableViews();
+		}
+
+		/**
+		 * this method is called on the event dispatch thread, once the job is
+		 * finished. By default it shows the picture
+		 * 
+		 * @param picture
+		 *            returned by doInBackground()
+		 */
+		protected void finished(Picture picture) {
+			showPicture(picture);
+			reset.setEnabled(true);
+		}
+	}
+
+	/**
+	 * this method cancels the running job and runs the given one, once the
+	 * worker thread is free. Views of the objects can not be shown, until the
+	 * job is finished
+	 * 
+	 * @param next
+	 *            job to be run
+	 */
+	private void submit(final Job next) {
+		cancelJob();
+		job = next;
+		progress.setValue(0);
+		progress.setString(next.title);
+		progress.setVisible(true);
+		next.addPropertyChangeListener(new PropertyChangeListener() {
+
+			@Override
+			public void propertyChange(PropertyChangeEvent event) {
+				if (job == next && "progress".equals(event.getPropertyName())) {
+					progress.setValue((Integer) event.getNewValue());
+				}
+			}
+
+		});
+		enableViews();
+		worker.execute(next);
+	}
+
+	/**
+	 * this method cancels the running job, if there is one. Its labels may be
+	 * half built, so the image is no longer labelled, and the views are not
+	 * enabled again, until the worker has passed the cancelled job
+	 */
+	private void cancelJob() {
+		if (job != null) {
+			final Job stopped = job;
+			stopped.cancel(true);
+			job = null;
+			cancelled = stopped;
+			labelled = false;
+			worker.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					EventQueue.invokeLater(new Runnable() {
+
+						@Override
+						public void run() {
+							if (cancelled == stopped) {
+								cancelled = null;
+								enableViews();
+							}
+						}
+
+					});
+				}
+
+			});
+			progress.setVisible(false);
+			enableViews();
+		}
+	}
+
+	/**
+	 * this method enables the buttons showing views of the objects, unless a
+	 * job is running or the image is not labelled
+	 */
+	private void enableViews() {
+		boolean enabled = job == null && cancelled == null && labelled;
+		addColours.setEnabled(enabled);
+		highlightObjects.setEnabled(enabled);
+		showSmallestAndLargest.setEnabled(enabled && objects > 1);
+	}
+
+	/**
+	 * this method shows the picture in the image panel. Its label is created
+	 * here, on the event dispatch thread
+	 * 
+	 * @param picture
+	 *            picture to be shown
+	 */
+	private void showPicture(Picture picture) {
+		shown = picture;
+		if (image != null) {
+			imagePanel.remove(image);
+		}
+		image = picture.getJLabel();
+		image.setSize(IMAGE_WIDTH, IMAGE_HEIGHT);
+		imagePanel.add(image);
+		imagePanel.moveToFront(image);
+	}
+
+	/**
+	 * this method labels the objects of the image with the threshold set with
+	 * the slider or chosen automatically and shows the binarised image. Job
+	 * binarising the image before is stopped
+	 */
+	private void binariseImage() {
+		final ComponentImage labelling = componentImage;
+		// there is no need to update threshold pixel value, unless the
+		// picture is going to be binarised:
+		final double threshold = thresholdAjustment.getValue();
+		final boolean automatic = automaticThreshold.isSelected();
+		labelled = false;
+		objectDetails.setText("");
+		submit(new Job("binarising") {
+			private int count;
+			private double chosen;
+
+			@Override
+			protected Picture doInBackground() {
+				labelling.setThresholdPixelValue(threshold);
+				labelling.setAutomaticThreshold(automatic);
+				labelling.labelComponents(this);
+				// objects can be clicked on, once the image is shown
+				stageStarted("index", 90);
+				labelling.getComponentIndex();
+				stageStarted("render", 95);
+				Picture picture = labelling.renderBinaryImage();
+				count = labelling.countComponents();
+				chosen = labelling.getThresholdPixelValue();
+				return picture;
+			}
+
+			@Override
+			protected void finished(Picture picture) {
+				showPicture(picture);
+				labelled = true;
+				objects = count;
+				// slider shows the threshold chosen automatically
+				thresholdAjustment.setValue((int) chosen);
 				reset.setEnabled(true);
-				showSmallestAndLargest.setEnabled(false);
+				// showing smallest and largest objects only possible, if
+				// number of objects on an image is greater than 1
+				smallestLargest.setVisible(count > 1);
+				objectsCount.setVisible(true);
+				objectsCount.setText("<html>number of objects: <br>" + count + " </html>");
 			}
 		});
+	}
 
+	/**
+	 * this method shows the features of the object at the point of the image
+	 * panel. Objects, whose bounding boxes contain the point, are found with
+	 * the index of the image, so the click is answered at once even for tens
+	 * of thousands of objects. If the point is in the background, the nearest
+	 * object is shown
+	 * 
+	 * @param panelX
+	 *            x of the point in the image panel
+	 * @param panelY
+	 *            y of the point in the image panel
+	 */
+	private void showObjectDetails(int panelX, int panelY) {
+		if (job != null || cancelled != null || !labelled || image == null || image.getIcon() == null) {
+			return;
+		}
+		// image is centred in its label
+		int x = panelX - image.getX() - (image.getWidth() - image.getIcon().getIconWidth()) / 2;
+		int y = panelY - image.getY() - (image.getHeight() - image.getIcon().getIconHeight()) / 2;
+		Picture picture = componentImage.getOriginal();
+		if (x < 0 || x >= picture.width() || y < 0 || y >= picture.height()) {
+			return;
+		}
+		int object = -1;
+		for (int candidate : componentImage.getComponentIndex().search(x, y)) {
+			if (componentImage.getComponentAt(x, y) == candidate) {
+				object = candidate;
+			}
+		}
+		String text = "object ";
+		if (object == -1) {
+			int[] nearest = componentImage.getComponentIndex().nearest(x, y, 1);
+			if (nearest.length == 0) {
+				objectDetails.setText("no objects");
+				return;
+			}
+			object = nearest[0];
+			text = "nearest object ";
+		}
+		RegionFeatures features = componentImage.getRegionFeatures();
+		objectDetails.setText(String.format(Locale.ROOT,
+				"%s%d: %d pixels, centre (%.1f, %.1f), perimeter %d, extent %.2f, holes %d", text, object + 1,
+				features.getArea(object), features.getCentroidX(object), features.getCentroidY(object),
+				features.getPerimeter(object), features.getExtent(object), 1 - features.getEulerNumber(object)));
+	}
+
+	/**
+	 * shows the threshold set with the slider along with the number of
+	 * objects, which binarising the image with it would find. For an image
+	 * larger than the window the number is of its proxy, so it is shown as
+	 * approximate
+	 */
+	private void updateSliderLabel() {
+		if (thresholdSweep == null) {
+			sliderLabel.setText("Set Threshold: ");
+		} else {
+			int threshold = thresholdAjustment.getValue();
+			sliderLabel.setText("Set Threshold: " + threshold + " (" + (sweepOfProxy ? "~" : "")
+					+ thresholdSweep.countComponents(threshold) + " objects)");
+		}
 	}
 
 	/**
@@ -0,0 +1,172 @@
+package models;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Threshold, which is computed for each pixel from the luminance of
+ *         the pixels in a square window around it, so that objects of an
+ *         unevenly lit image are separated from the background, which is
+ *         brighter in one part of the image than in another. As with the
+ *         global threshold, pixels darker than their threshold are
+ *         background. With m and s - mean and standard deviation of the
+ *         luminance in the window - the threshold is:
+ *
+ *         - MEAN: m + k, ie objects need to be brighter than their
+ *         surroundings by k
+ *
+ *         - NIBLACK: m + k * s
+ *
+ *         - SAUVOLA: m * (1 + k * (s / R - 1)), where R = 128 is the dynamic
+ *         range of the standard deviation
+ *
+ *         Mean and standard deviation of each window are computed in O(1)
+ *         from summed-area tables of the luminance and of the luminance
+ *         squared, so the cost does not depend on the size of the window.
+ *         Windows are clipped at the edges of the image
+ */
+public class AdaptiveThreshold {
+	public static final double DYNAMIC_RANGE = 128; // R of Sauvola's method
+	private final Method method;
+	private final int window; // side of the window, odd number of pixels
+	private final double k;
+
+	/**
+	 * statistic, which the luminance of the pixel is compared to
+	 */
+	public enum Method {
+		MEAN(10), NIBLACK(0.2), SAUVOLA(0.5);
+
+		private final double defaultK;
+
+		Method(double defaultK) {
+			this.defaultK = defaultK;
+		}
+
+		/**
+		 *
+		 * @return commonly used value of k
+		 */
+		public double getDefaultK() {
+			return defaultK;
+		}
+	}
+
+	/**
+	 * Initialise fields
+	 *
+	 * @param method
+	 *            statistic the pixels are compared to
+	 * @param window
+	 *            side of the window in pixels, rounded up to an odd number
+	 * @param k
+	 *            parameter of the method
+	 * @throws IllegalArgumentException
+	 *             if method is null or window &lt; 1
+	 */
+	public AdaptiveThreshold(Method method, int window, double k) {
+		if (method == null) {
+			throw new IllegalArgumentException("method must not be null");
+		}
+		if (window < 1) {
+			throw new IllegalArgumentException("window must be at least one pixel");
+		}
+		this.method = method;
+		this.window = window | 1;
+		this.k = k;
+	}
+
+	/**
+	 * Initialise fields with the commonly used value of k of the method
+	 *
+	 * @param method
+	 *            statistic the pixels are compared to
+	 * @param window
+	 *            side of the window in pixels, rounded up to an odd number
+	 */
+	public AdaptiveThreshold(Method method, int window) {
+		this(method, window, method == null ? 0 : method.getDefaultK());
+	}
+
+	/**
+	 * compares each pixel with the threshold of its window
+	 *
+	 * @param luminance
+	 *            8-bit luminance of the pixels, row by row, as computed by
+	 *            Luminance.lumPlane()
+	 * @param width
+	 *            width of the image
+	 * @param height
+	 *            height of the image
+	 * @return background[i] = true if pixel i is darker than its threshold
+	 */
+	public boolean[] background(byte[] luminance, int width, int height) {
+		// sum[(y + 1) * (width + 1) + x + 1] = sum of the luminance of pixels
+		// above and to the left of pixel (x, y), including it
+		int stride = width + 1;
+		long[] sum = new long[stride * (height + 1)];
+		long[] squares = new long[stride * (height + 1)];
+		for (int y = 0; y < height; y++) {
+			long rowSum = 0;
+			long rowSquares = 0;
+			for (int x = 0; x < width; x++) {
+				int lum = luminance[y * width + x] & 0xFF;
+				rowSum += lum;
+				rowSquares += lum * lum;
+				int site = (y + 1) * stride + x + 1;
+				sum[site] = sum[site - stride] + rowSum;
+				squares[site] = squares[site - stride] + rowSquares;
+			}
+		}
+		boolean[] background = new boolean[width * height];
+		int half = window / 2;
+		for (int y = 0; y < height; y++) {
+			int top = Math.max(0, y - half) * stride;
+			int bottom = (Math.min(height - 1, y + half) + 1) * stride;
+			int rows = Math.min(height - 1, y + half) - Math.max(0, y - half) + 1;
+			for (int x = 0; x < width; x++) {
+				int left = Math.max(0, x - half);
+				int right = Math.min(width - 1, x + half) + 1;
+				double pixels = (double) rows * (right - left);
+				long windowSum = sum[bottom + right] - sum[bottom + left] - sum[top + right] + sum[top + left];
+				long windowSquares = squares[bottom + right] - squares[bottom + left] - squares[top + right]
+						+ squares[top + left];
+				double mean = windowSum / pixels;
+				double threshold;
+				if (method == Method.MEAN) {
+					threshold = mean + k;
+				} else {
+					double deviation = Math.sqrt(Math.max(0, windowSquares / pixels - mean * mean));
+					threshold = method == Method.NIBLACK ? mean + k * deviation
+							: mean * (1 + k * (deviation / DYNAMIC_RANGE - 1));
+				}
+				background[y * width + x] = (luminance[y * width + x] & 0xFF) < threshold;
+			}
+		}
+		return background;
+	}
+
+	/**
+	 *
+	 * @return statistic the pixels are compared to
+	 */
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 *
+	 * @return side of the window in pixels
+	 */
+	public int getWindow() {
+		return window;
+	}
+
+	/**
+	 *
+	 * @return parameter of the method
+	 */
+	public double getK() {
+		return k;
+	}
+
+}
@@ -0,0 +1,211 @@
+package models;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Foreground pixels of a binarised image, one bit for each pixel.
+ *         Each row starts at a new word of 64 pixels, bit x % 64 of word x /
+ *         64 of the row is set for a foreground pixel at x, so the mask takes
+ *         1/32 of the memory of the labels and a word of 0 stands for 64
+ *         pixels of background. Labelers go through the set bits with
+ *         Long.numberOfTrailingZeros() and find runs of foreground pixels
+ *         word by word, so images made mostly of background, eg stars on the
+ *         sky, are labelled in time depending on their objects rather than
+ *         on their size
+ */
+public class BinaryMask {
+	private final int width;
+	private final int height;
+	private final int wordsPerRow;
+	private final long[] words;
+
+	/**
+	 * Initialises the mask with all pixels background
+	 *
+	 * @param width
+	 *            width of the image
+	 * @param height
+	 *            height of the image
+	 * @throws IllegalArgumentException
+	 *             if width or height is negative
+	 */
+	public BinaryMask(int width, int height) {
+		if (width < 0 || height < 0) {
+			throw new IllegalArgumentException("size of the mask must not be negative");
+		}
+		this.width = width;
+		this.height = height;
+		wordsPerRow = (width + 63) >>> 6;
+		words = new long[wordsPerRow * height];
+	}
+
+	/**
+	 * this method creates the mask of the pixels of the given rows, which are
+	 * not background in id array, ie are not -1. Pixels of the other rows
+	 * are background
+	 *
+	 * @param id
+	 *            pixels of the image, row by row
+	 * @param width
+	 *            width of the image
+	 * @param fromRow
+	 *            first row
+	 * @param toRow
+	 *            row after the last row, also the height of the mask
+	 * @return mask of the foreground pixels
+	 */
+	public static BinaryMask fromLabels(int[] id, int width, int fromRow, int toRow) {
+		BinaryMask mask = new BinaryMask(width, toRow);
+		for (int y = fromRow; y < toRow; y++) {
+			int row = y * width;
+			for (int x = 0; x < width; x++) {
+				if (id[row + x] != -1) {
+					mask.words[y * mask.wordsPerRow + (x >>> 6)] |= 1L << x;
+				}
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 *
+	 * @return width of the image
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 *
+	 * @return height of the image
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 *
+	 * @return number of words of each row
+	 */
+	public int getWordsPerRow() {
+		return wordsPerRow;
+	}
+
+	/**
+	 * gives the words of the mask, eg to be filled when the image is
+	 * binarised. Bits past the width of the image must be left clear
+	 *
+	 * @return words of all rows, row by row
+	 */
+	public long[] getWords() {
+		return words;
+	}
+
+	/**
+	 *
+	 * @param x
+	 *            x of the pixel
+	 * @param y
+	 *            y of the pixel
+	 * @return true if the pixel is foreground
+	 */
+	public boolean get(int x, int y) {
+		return (words[y * wordsPerRow + (x >>> 6)] & 1L << x) != 0;
+	}
+
+	/**
+	 * this method finds the first foreground pixel of the row at x or after
+	 * it, skipping words of background at once
+	 *
+	 * @param x
+	 *            first x to be checked
+	 * @param y
+	 *            row
+	 * @return x of the pixel, width if there is none
+	 */
+	public int nextSet(int x, int y) {
+		if (x >= width) {
+			return width;
+		}
+		int word = x >>> 6;
+		int row = y * wordsPerRow;
+		long bits = words[row + word] & -1L << x;
+		while (bits == 0) {
+			if (++word == wordsPerRow) {
+				return width;
+			}
+			bits = words[row + word];
+		}
+		return word << 6 | Long.numberOfTrailingZeros(bits);
+	}
+
+	/**
+	 * this method finds the first background pixel of the row at x or after
+	 * it, skipping words of foreground at once
+	 *
+	 * @param x
+	 *            first x to be checked
+	 * @param y
+	 *            row
+	 * @return x of the pixel, width if there is none
+	 */
+	public int nextClear(int x, int y) {
+		if (x >= width) {
+			return width;
+		}
+		int word = x >>> 6;
+		int row = y * wordsPerRow;
+		long bits = ~words[row + word] & -1L << x;
+		while (bits == 0) {
+			if (++word == wordsPerRow) {
+				return width;
+			}
+			bits = ~words[row + word];
+		}
+		return Math.min(width, word << 6 | Long.numberOfTrailingZeros(bits));
+	}
+
+	/**
+	 * this method makes the pixels of the row from fromX to toX - 1
+	 * background, eg the pixels of an object dropped after labelling
+	 *
+	 * @param fromX
+	 *            first x to be cleared
+	 * @param toX
+	 *            x after the last one to be cleared
+	 * @param y
+	 *            row
+	 */
+	public void clear(int fromX, int toX, int y) {
+		if (fromX >= toX) {
+			return;
+		}
+		int row = y * wordsPerRow;
+		int first = fromX >>> 6;
+		int last = (toX - 1) >>> 6;
+		long firstBits = -1L << fromX;
+		long lastBits = -1L >>> -toX;
+		if (first == last) {
+			words[row + first] &= ~(firstBits & lastBits);
+			return;
+		}
+		words[row + first] &= ~firstBits;
+		for (int word = first + 1; word < last; word++) {
+			words[row + word] = 0;
+		}
+		words[row + last] &= ~lastBits;
+	}
+
+	/**
+	 *
+	 * @return number of foreground pixels
+	 */
+	public int count() {
+		int count = 0;
+		for (long word : words) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+}
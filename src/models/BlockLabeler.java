@@ -0,0 +1,159 @@
+package models;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Two-pass labelling with 8-connectivity, which works on blocks of
+ *         2x2 pixels instead of single pixels. All foreground pixels of a
+ *         block touch each other, so a block is a single site of union-find
+ *         structure and each union covers up to four pixels. A block is joined
+ *         with the block on the left, top left, top and top right, depending
+ *         on ten pixels: the four of the block itself and six of the
+ *         neighbouring blocks, which are adjacent to it. For every combination
+ *         of those pixels, the unions needed are worked out once in a decision
+ *         table, which also skips neighbouring blocks already known to be in
+ *         the same object
+ */
+public class BlockLabeler implements ComponentLabeler {
+	// pixels of the current block: a b / c d, with a at (x, y)
+	private static final int A = 1;
+	private static final int B = 1 << 1;
+	private static final int C = 1 << 2;
+	private static final int D = 1 << 3;
+	// pixels of neighbouring blocks adjacent to the current block
+	private static final int UP_LEFT = 1 << 4; // (x - 1, y - 1)
+	private static final int UP_1 = 1 << 5; // (x, y - 1)
+	private static final int UP_2 = 1 << 6; // (x + 1, y - 1)
+	private static final int UP_RIGHT = 1 << 7; // (x + 2, y - 1)
+	private static final int LEFT_1 = 1 << 8; // (x - 1, y)
+	private static final int LEFT_2 = 1 << 9; // (x - 1, y + 1)
+	// blocks to be joined with the current one
+	private static final int JOIN_LEFT = 1;
+	private static final int JOIN_UP_LEFT = 2;
+	private static final int JOIN_UP = 4;
+	private static final int JOIN_UP_RIGHT = 8;
+	private static final byte[] ACTIONS = createActions();
+
+	@Override
+	public UnionFind label(int[] id, int width, int fromRow, int toRow) {
+		int blocksWide = (width + 1) / 2;
+		int blocksHigh = (toRow - fromRow + 1) / 2;
+		UnionFind unionFind = new UnionFind(blocksWide * blocksHigh);
+		// first foreground pixel of each block
+		int[] blockPixel = new int[blocksWide * blocksHigh];
+		// first pass
+		int block = 0;
+		for (int by = 0; by < blocksHigh; by++) {
+			int y = fromRow + 2 * by;
+			for (int bx = 0; bx < blocksWide; bx++) {
+				int x = 2 * bx;
+				int mask = 0;
+				if (isForeground(id, width, fromRow, toRow, x, y))
+					mask |= A;
+				if (isForeground(id, width, fromRow, toRow, x + 1, y))
+					mask |= B;
+				if (isForeground(id, width, fromRow, toRow, x, y + 1))
+					mask |= C;
+				if (isForeground(id, width, fromRow, toRow, x + 1, y + 1))
+					mask |= D;
+				if (mask != 0) {
+					blockPixel[block] = y * width + x + ((mask & A) != 0 ? 0
+							: (mask & B) != 0 ? 1 : (mask & C) != 0 ? width : width + 1);
+					if (isForeground(id, width, fromRow, toRow, x - 1, y - 1))
+						mask |= UP_LEFT;
+					if (isForeground(id, width, fromRow, toRow, x, y - 1))
+						mask |= UP_1;
+					if (isForeground(id, width, fromRow, toRow, x + 1, y - 1))
+						mask |= UP_2;
+					if (isForeground(id, width, fromRow, toRow, x + 2, y - 1))
+						mask |= UP_RIGHT;
+					if (isForeground(id, width, fromRow, toRow, x - 1, y))
+						mask |= LEFT_1;
+					if (isForeground(id, width, fromRow, toRow, x - 1, y + 1))
+						mask |= LEFT_2;
+					int action = ACTIONS[mask];
+					if ((action & JOIN_LEFT) != 0)
+						unionFind.union(block - 1, block);
+					if ((action & JOIN_UP_LEFT) != 0)
+						unionFind.union(block - blocksWide - 1, block);
+					if ((action & JOIN_UP) != 0)
+						unionFind.union(block - blocksWide, block);
+					if ((action & JOIN_UP_RIGHT) != 0)
+						unionFind.union(block - blocksWide + 1, block);
+				}
+				block++;
+			}
+		}
+		// second pass
+		for (int y = fromRow; y < toRow; y++) {
+			int counter = y * width;
+			int rowBlock = (y - fromRow) / 2 * blocksWide;
+			for (int x = 0; x < width; x++) {
+				if (id[counter] != -1) {
+					id[counter] = blockPixel[unionFind.find(rowBlock + x / 2)];
+				}
+				counter++;
+			}
+		}
+		return unionFind;
+	}
+
+	@Override
+	public Connectivity getConnectivity() {
+		return Connectivity.EIGHT;
+	}
+
+	/**
+	 * pixels outside of the image or outside of the range of rows are
+	 * considered background
+	 */
+	private static boolean isForeground(int[] id, int width, int fromRow, int toRow, int x, int y) {
+		return x >= 0 && x < width && y >= fromRow && y < toRow && id[y * width + x] != -1;
+	}
+
+	/**
+	 * works out the unions needed for each combination of the ten pixels. A
+	 * neighbouring block is skipped, if it touches another neighbouring
+	 * block, which is joined anyway - such blocks were already joined, when
+	 * the later of them was labelled
+	 */
+	private static byte[] createActions() {
+		byte[] actions = new byte[1 << 10];
+		for (int mask = 0; mask < actions.length; mask++) {
+			boolean a = (mask & A) != 0;
+			boolean b = (mask & B) != 0;
+			boolean c = (mask & C) != 0;
+			boolean left1 = (mask & LEFT_1) != 0;
+			boolean up1 = (mask & UP_1) != 0;
+			boolean up2 = (mask & UP_2) != 0;
+			boolean left = (a || c) && (left1 || (mask & LEFT_2) != 0);
+			boolean upLeft = a && (mask & UP_LEFT) != 0;
+			boolean up = (a || b) && (up1 || up2);
+			boolean upRight = b && (mask & UP_RIGHT) != 0;
+			if (up && upLeft && up1) {
+				upLeft = false;
+			}
+			if (up && upRight && up2) {
+				upRight = false;
+			}
+			if (left && upLeft && left1) {
+				upLeft = false;
+			}
+			if (left && up && left1 && up1) {
+				up = false;
+			}
+			int action = 0;
+			if (left)
+				action |= JOIN_LEFT;
+			if (upLeft)
+				action |= JOIN_UP_LEFT;
+			if (up)
+				action |= JOIN_UP;
+			if (upRight)
+				action |= JOIN_UP_RIGHT;
+			actions[mask] = (byte) action;
+		}
+		return actions;
+	}
+
+}
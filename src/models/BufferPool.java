@@ -0,0 +1,113 @@
+package models;
+
+import java.util.ArrayList;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Keeps the label arrays of images, which are no longer needed, so
+ *         that the next image of the same or smaller size can lease one
+ *         instead of allocating it. Each leased array is the shortest kept
+ *         one, which is long enough, but at most twice as long as needed, so
+ *         a small image does not hold the array of a large one. Memory used by
+ *         the kept arrays is bounded - once it exceeds the limit, the oldest
+ *         arrays are dropped. The pool can be used by several threads, eg by
+ *         background workers
+ */
+public class BufferPool {
+	private final long maxBytes;
+	private long bytes; // memory used by the kept arrays
+	private int hits; // number of arrays leased without allocating
+	private int misses; // number of arrays allocated
+	private final ArrayList<int[]> buffers = new ArrayList<int[]>(); // oldest first
+
+	/**
+	 * Initialise fields
+	 *
+	 * @param maxBytes
+	 *            memory, which the kept arrays may use
+	 * @throws IllegalArgumentException
+	 *             if maxBytes &lt; 0
+	 */
+	public BufferPool(long maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("memory limit must not be negative");
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * this method leases an array of at least the given length. Its content
+	 * is not defined
+	 *
+	 * @param length
+	 *            length needed
+	 * @return array kept by the pool, or a new one, if none fits
+	 * @throws IllegalArgumentException
+	 *             if length &lt; 0
+	 */
+	public synchronized int[] lease(int length) {
+		if (length < 0) {
+			throw new IllegalArgumentException("length must not be negative");
+		}
+		int best = -1;
+		for (int i = 0; i < buffers.size(); i++) {
+			int bufferLength = buffers.get(i).length;
+			if (bufferLength >= length && bufferLength / 2 <= length
+					&& (best == -1 || bufferLength < buffers.get(best).length)) {
+				best = i;
+			}
+		}
+		if (best == -1) {
+			misses++;
+			return new int[length];
+		}
+		hits++;
+		int[] buffer = buffers.remove(best);
+		bytes -= 4L * buffer.length;
+		return buffer;
+	}
+
+	/**
+	 * this method gives the array back to the pool, so it can be leased
+	 * again. The array must not be used by the caller afterwards
+	 *
+	 * @param buffer
+	 *            array leased before, or any other array
+	 */
+	public synchronized void release(int[] buffer) {
+		if (buffer == null || 4L * buffer.length > maxBytes) {
+			return;
+		}
+		buffers.add(buffer);
+		bytes += 4L * buffer.length;
+		while (bytes > maxBytes) {
+			bytes -= 4L * buffers.remove(0).length;
+		}
+	}
+
+	/**
+	 *
+	 * @return memory used by the kept arrays
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 *
+	 * @return number of arrays leased without allocating
+	 */
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	/**
+	 *
+	 * @return number of arrays allocated
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+}
@@ -1,10 +1,10 @@
 package models;
 
 import java.awt.Color;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import javax.swing.ImageIcon;
 
 import edu.princeton.cs.introcs.Picture;
 
@@ -19,19 +19,61 @@ import edu.princeton.cs.introcs.Picture;
  *         color value to the pixel, when the image is binarised
  */
 public class ComponentImage {
-	private Picture picture;
+	private static final int BLACK = Color.BLACK.getRGB();
+	private static final int WHITE = Color.WHITE.getRGB();
+	// pool of the images, whose pool is not set
+	private static final BufferPool DEFAULT_POOL = new BufferPool(Runtime.getRuntime().maxMemory() / 8);
+	private Picture picture; // picture as loaded, never changed
+	private Picture view; // last rendered view, never changed once rendered
+	private BufferedImage image; // image backing the loaded picture, looked up once
 	private String fileLocation;
 	private double thresholdPixelValue; // defines brightness boundary
-	private int[] id; // parent[i] = parent of i
+	private boolean automaticThreshold; // threshold chosen with Otsu's method
+	private AdaptiveThreshold adaptiveThreshold; // threshold of each pixel
+	private int minimumArea; // smaller objects are dropped, eg noise
+	private int maximumArea = Integer.MAX_VALUE; // larger objects are dropped
+	private BufferPool pool = DEFAULT_POOL; // arrays of released images, leased by the next ones
+	private int[] id; // -1 for background, component index once labelled, null until binarised
+	private BinaryMask mask; // object pixels kept by the last labelling
 	private int dimension; // number of sites
 	private int counter; // label counter
 	private int width; // width of the image
 	private int height; // height of the image
-	private int[] size;
+	private UnionFind unionFind; // structure used in the last labelling
+	private ComponentLabeler labeler; // connects adjacent sites of the objects
 	private int count; // number of distinct objects in an image
-	private ArrayList<Integer> labels;
-	private ArrayList<Color> colors;
+	private int components; // number of distinct labels after labelling
+	private int[] labels; // labels[i] = root site of component i < components
+	private int[] colors; // packed rgb colour of each component
+	private byte[] luminance; // luminance of the loaded pixels, if known
+	private boolean sharedLuminance; // luminance array is shared, eg cached
 	private int[][] objectsProperties;
+	private RegionFeatures regionFeatures; // features of the labelled objects
+	// features of the labelling before, measured again by the next one
+	private RegionFeatures spareFeatures;
+	private boolean measured; // spareFeatures are of the last compaction, not published yet
+	private ComponentIndex componentIndex; // built, once it is needed
+	private ComponentIndex spareIndex; // index of the labelling before
+	private boolean indexed; // componentIndex is built for regionFeatures
+
+	/**
+	 * receives the progress of labelling, stage by stage
+	 */
+	public interface ProgressListener {
+
+		/**
+		 * called before each stage of labelling. Labelling can be stopped by
+		 * throwing an unchecked exception, eg CancellationException, which
+		 * is passed on to the caller. The results of stopped labelling are
+		 * not valid
+		 * 
+		 * @param stage
+		 *            name of the stage
+		 * @param percent
+		 *            estimated part of labelling done before the stage
+		 */
+		void stageStarted(String stage, int percent);
+	}
 
 	/**
 	 * Initialise fields
@@ -39,17 +81,73 @@ public class ComponentImage {
 	 * @param fileLocation
 	 */
 	public ComponentImage(String fileLocation) {
-
+		this(new Picture(fileLocation));
 		this.fileLocation = fileLocation;
-		picture = new Picture(fileLocation);
+	}
+
+	/**
+	 * Initialise fields with a picture, which was not read from a file, eg
+	 * generated one
+	 * 
+	 * @param picture
+	 */
+	public ComponentImage(Picture picture) {
+
+		this.picture = picture;
 		width = picture.width();
 		height = picture.height();
 		dimension = width * height;
 		counter = 0;
-		id = new int[dimension];
-		size = new int[dimension];
 		count = dimension;
+		labeler = new FourConnectedLabeler();
+
+	}
+
+	/**
+	 * Initialise fields with pixels decoded before, eg kept by ImageCache. The
+	 * pixels are copied to a new picture, so the arrays can be shared by many
+	 * images
+	 * 
+	 * @param fileLocation
+	 *            path of the image the pixels were decoded from
+	 * @param width
+	 *            width of the image
+	 * @param height
+	 *            height of the image
+	 * @param pixels
+	 *            packed rgb values of the pixels, row by row
+	 * @param luminance
+	 *            luminance of each pixel rounded down, as computed by
+	 *            Luminance.lumPlane()
+	 */
+	ComponentImage(String fileLocation, int width, int height, int[] pixels, byte[] luminance) {
+		this(new Picture(width, height));
+		PackedPixels.write(getRaster(), pixels);
+		this.fileLocation = fileLocation;
+		this.luminance = luminance;
+		sharedLuminance = true;
+	}
 
+	/**
+	 * this method replaces the pixels of the picture with those of the next
+	 * frame of a sequence, eg of a camera. The picture, luminance plane and
+	 * other arrays of the pixels are reused, so processing a sequence of
+	 * frames does not allocate them again for each frame
+	 * 
+	 * @param frame
+	 *            image of the same size as the picture
+	 * @throws IllegalArgumentException
+	 *             if the size of the frame is different
+	 */
+	void setFrame(BufferedImage frame) {
+		if (frame.getWidth() != width || frame.getHeight() != height) {
+			throw new IllegalArgumentException("frame must be " + width + " x " + height + " pixels in size");
+		}
+		int[] pixels = PackedPixels.read(frame, pool.lease(dimension));
+		PackedPixels.write(getRaster(), pixels);
+		luminance = Luminance.lumPlane(pixels, dimension, sharedLuminance ? null : luminance);
+		sharedLuminance = false;
+		pool.release(pixels);
 	}
 
 	/**
@@ -61,219 +159,645 @@ public class ComponentImage {
 	}
 
 	/**
-	 * this method iterates over every single pixel in the image and change the
-	 * pixel's value to white, if brighter than thresholdPixelValue or black,
-	 * when darker. Count is decremented every time, the pixel turns black, as
-	 * black pixels are considered background, not objects. Each white pixel's
-	 * site in id array gets the value of its index
+	 * this method labels the objects, as labelComponents() does, and renders
+	 * the binarised image, where pixels brighter than thresholdPixelValue are
+	 * white and darker ones are black
 	 * 
 	 * @return binarised picture
 	 * 
 	 */
 	public Picture binaryComponentImage() {
-		counter = 0;
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				Color c = picture.get(x, y);
-				if (Luminance.lum(c) < getThresholdPixelValue()) {
-					picture.set(x, y, Color.BLACK);
-					id[counter] = -1;
-					count--;
-				} else {
-					picture.set(x, y, Color.WHITE);
-					id[counter] = counter;
-					size[counter] = 1;
-				}
-				counter++;
-			}
-		}
+		labelComponents();
+		return renderBinaryImage();
+	}
+
+	/**
+	 * this method iterates over every single pixel in the image and
+	 * considers it an object pixel, if brighter than thresholdPixelValue, or
+	 * background, when darker. Count is decremented every time, the pixel is
+	 * background. Object pixels are then labelled and properties of each
+	 * object are gathered. The loaded picture is not changed, so the image
+	 * can be labelled again with another threshold, and the views of the
+	 * labelled image are only rendered on demand
+	 */
+	public void labelComponents() {
+		threshold();
 		checkForObjects();
 		analyseObjectsLabels();
 		calculateCoordinates();
-		return picture;
 	}
 
 	/**
-	 * this method takes binarised picture and fills each of the objects found
-	 * in the picture with random colour
-	 * 
-	 * @return picture with random-coloured objects
+	 * this method labels the objects, as labelComponents() does, and reports
+	 * each stage to the listener, so that labelling run in the background can
+	 * show its progress and can be stopped between the stages
 	 * 
+	 * @param listener
+	 *            receives the progress of labelling
 	 */
-	public Picture colourComponentImage() {
-		colors = new ArrayList<Color>();
-		for (int i = 0; i < labels.size(); i++) {
-			float red = (float) Math.random();
-			float green = (float) Math.random();
-			float blue = (float) Math.random();
+	public void labelComponents(ProgressListener listener) {
+		listener.stageStarted("threshold", 0);
+		threshold();
+		listener.stageStarted("label", 30);
+		checkForObjects();
+		listener.stageStarted("compact", 70);
+		analyseObjectsLabels();
+		listener.stageStarted("statistics", 85);
+		calculateCoordinates();
+	}
 
-			colors.add(new Color(red, green, blue));
+	/**
+	 * first stage of labelComponents(), which only prepares id array for
+	 * labelling - each object pixel's site gets the value of its index, -1
+	 * for background. If the threshold is a whole number, the pixels are
+	 * compared by their 8-bit luminance, looked up from tables of the
+	 * channel products by Luminance.lumPlane() only once for the picture.
+	 * With automatic
+	 * threshold, the threshold pixel value is chosen first from the histogram
+	 * of the luminance. With adaptive threshold, each pixel is compared with
+	 * the threshold of its own window instead. Object pixels are also kept in
+	 * a binary mask, which lets the labeler skip the background 64 pixels at
+	 * a time
+	 */
+	void threshold() {
+		if (automaticThreshold) {
+			thresholdPixelValue = getHistogram().otsuThreshold();
 		}
-		counter = 0;
+		double threshold = getThresholdPixelValue();
+		boolean whole = threshold == Math.floor(threshold);
+		boolean[] background = null;
+		if (adaptiveThreshold != null) {
+			background = adaptiveThreshold.background(getLuminance(), width, height);
+		}
+		// packed rgb values are only needed, when the threshold is a fraction
+		int[] pixels = null;
+		if (whole) {
+			getLuminance();
+		} else if (background == null) {
+			pixels = PackedPixels.read(getRaster(), pool.lease(dimension));
+		}
+		if (id == null) {
+			id = pool.lease(dimension);
+		}
+		if (mask == null) {
+			mask = new BinaryMask(width, height);
+		}
+		// object pixels are gathered in the mask 64 at a time, id array is
+		// then filled word by word, words of background at once
+		long[] words = mask.getWords();
+		int wordsPerRow = mask.getWordsPerRow();
+		int level = (int) threshold; // lowest luminance of object pixels, if whole
+		int foreground = 0;
 		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				for (int i = 0; i < labels.size(); i++) {
-					if (id[counter] == labels.get(i)) {
-						picture.set(x, y, colors.get(i));
+			int rowEnd = (y + 1) * width;
+			for (int word = 0; word < wordsPerRow; word++) {
+				int from = y * width + (word << 6);
+				int to = Math.min(rowEnd, from + 64);
+				long bits = 0;
+				if (background != null) {
+					for (counter = from; counter < to; counter++) {
+						if (!background[counter]) {
+							bits |= 1L << (counter - from);
+						}
+					}
+				} else if (whole) {
+					for (counter = from; counter < to; counter++) {
+						// sign bit of level - 1 - luminance is set for object pixels
+						bits |= (long) ((level - 1 - (luminance[counter] & 0xFF)) >>> 31) << (counter - from);
+					}
+				} else {
+					for (counter = from; counter < to; counter++) {
+						if (Luminance.lum(pixels[counter]) >= threshold) {
+							bits |= 1L << (counter - from);
+						}
+					}
+				}
+				words[y * wordsPerRow + word] = bits;
+				if (bits == 0) {
+					Arrays.fill(id, from, to, -1);
+				} else {
+					foreground += Long.bitCount(bits);
+					for (counter = from; counter < to; counter++) {
+						id[counter] = (bits >>> (counter - from) & 1) != 0 ? counter : -1;
 					}
 				}
-				counter++;
 			}
 		}
-		return picture;
+		count = foreground;
+		pool.release(pixels);
 	}
 
 	/**
-	 * this method takes picture and draws lines around the objects found. The
-	 * details about the objects to be processed when drawing the lines are
-	 * stores in two-dimensional array coordinates
-	 * 
-	 * @return picture with boxes around objects
+	 * this method counts the objects for all of the 256 threshold pixel values
+	 * at once, without binarising the picture. Pixel belongs to the objects at
+	 * integer threshold t, when its luminance is not lower than t, so object
+	 * pixels of each threshold are also object pixels of all lower ones.
+	 * Pixels are sorted by luminance and added to a single union-find
+	 * structure from the brightest to the darkest, joining each pixel with
+	 * the neighbours added before (as in a max-tree). Once all pixels of one
+	 * luminance level are added, the structure holds the objects of the image
+	 * binarised with that threshold. Pixels adjacent to each other are the
+	 * same as for the labeler
+	 *
+	 * @return number of objects, object pixels and pixels count of the largest
+	 *         object at each threshold
+	 */
+	public ThresholdSweep sweepThresholds() {
+		// level[i] = highest threshold, at which pixel i belongs to objects
+		byte[] level = getLuminance();
+		int[] start = new int[ThresholdSweep.THRESHOLDS];
+		for (int i = 0; i < dimension; i++) {
+			start[level[i] & 0xFF]++;
+		}
+		// pixels sorted by descending level, pixels of level t start at
+		// start[t] and end where pixels of level t - 1 start
+		int next = 0;
+		for (int t = ThresholdSweep.THRESHOLDS - 1; t >= 0; t--) {
+			int pixelsCount = start[t];
+			start[t] = next;
+			next += pixelsCount;
+		}
+		int[] order = new int[dimension];
+		int[] position = new int[ThresholdSweep.THRESHOLDS];
+		System.arraycopy(start, 0, position, 0, ThresholdSweep.THRESHOLDS);
+		for (int i = 0; i < dimension; i++) {
+			order[position[level[i] & 0xFF]++] = i;
+		}
+
+		boolean eight = labeler.getConnectivity() == Connectivity.EIGHT;
+		UnionFind sweep = new UnionFind(dimension);
+		int[] counts = new int[ThresholdSweep.THRESHOLDS];
+		int[] foreground = new int[ThresholdSweep.THRESHOLDS];
+		int[] largest = new int[ThresholdSweep.THRESHOLDS];
+		int objects = 0;
+		int largestPixelCount = 0;
+		for (int t = ThresholdSweep.THRESHOLDS - 1; t >= 0; t--) {
+			int end = t == 0 ? dimension : start[t - 1];
+			for (int k = start[t]; k < end; k++) {
+				int site = order[k];
+				int x = site % width;
+				int y = site / width;
+				objects++;
+				// neighbours of the same level, which are not added yet, are
+				// joined too - the count is right once the whole level is added
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						if ((dx == 0 && dy == 0) || (!eight && dx != 0 && dy != 0)) {
+							continue;
+						}
+						int nx = x + dx;
+						int ny = y + dy;
+						if (nx >= 0 && nx < width && ny >= 0 && ny < height) {
+							int neighbour = site + dy * width + dx;
+							if ((level[neighbour] & 0xFF) >= t && sweep.union(site, neighbour)) {
+								objects--;
+							}
+						}
+					}
+				}
+				largestPixelCount = Math.max(largestPixelCount, sweep.size(site));
+			}
+			counts[t] = objects;
+			foreground[t] = end;
+			largest[t] = largestPixelCount;
+		}
+		return new ThresholdSweep(counts, foreground, largest);
+	}
+
+	/**
+	 * this method creates a smaller copy of the image, eg for preview of the
+	 * objects found with the threshold being chosen. The picture is shrunk by
+	 * the lowest whole factor f, for which it fits the given size - each
+	 * pixel of the copy is grey, with the mean luminance of an f x f block of
+	 * the pixels of the picture. Luminance of the picture is only read once,
+	 * so the cost of labelling the copy depends on its size only. The copy
+	 * is labelled with the same labeler, threshold and adaptive threshold,
+	 * whose window is shrunk by f as well
 	 * 
+	 * @param maxWidth
+	 *            largest width of the copy
+	 * @param maxHeight
+	 *            largest height of the copy
+	 * @return image at most maxWidth x maxHeight pixels in size
+	 * @throws IllegalArgumentException
+	 *             if maxWidth or maxHeight is lower than 1
 	 */
-	public Picture highlightComponentImage() {
-		for (int i = 0; i < objectsProperties.length; i++) {
-			for (int x = objectsProperties[i][0]; x < objectsProperties[i][1]; x++) {
-				picture.set(objectsProperties[i][2], x, Color.RED);
-				picture.set(objectsProperties[i][3], x, Color.RED);
+	public ComponentImage createProxy(int maxWidth, int maxHeight) {
+		if (maxWidth < 1 || maxHeight < 1) {
+			throw new IllegalArgumentException("proxy must be at least one pixel in size");
+		}
+		int factor = Math.max(1, Math.max((width + maxWidth - 1) / maxWidth, (height + maxHeight - 1) / maxHeight));
+		int proxyWidth = (width + factor - 1) / factor;
+		int proxyHeight = (height + factor - 1) / factor;
+		byte[] level = getLuminance();
+		byte[] proxyLuminance = new byte[proxyWidth * proxyHeight];
+		int[] pixels = new int[proxyWidth * proxyHeight];
+		long[] sums = new long[proxyWidth]; // sums of the luminance of the blocks of a row
+		for (int py = 0; py < proxyHeight; py++) {
+			int top = py * factor;
+			int bottom = Math.min(height, top + factor);
+			Arrays.fill(sums, 0);
+			for (int y = top; y < bottom; y++) {
+				int row = y * width;
+				for (int px = 0; px < proxyWidth; px++) {
+					int right = Math.min(width, (px + 1) * factor);
+					int sum = 0;
+					for (int x = px * factor; x < right; x++) {
+						sum += level[row + x] & 0xFF;
+					}
+					sums[px] += sum;
+				}
 			}
-			for (int y = objectsProperties[i][2]; y < objectsProperties[i][3]; y++) {
-				picture.set(y, objectsProperties[i][0], Color.RED);
-				picture.set(y, objectsProperties[i][1], Color.RED);
+			for (int px = 0; px < proxyWidth; px++) {
+				int blockPixels = (bottom - top) * (Math.min(width, (px + 1) * factor) - px * factor);
+				int lum = (int) (sums[px] / blockPixels);
+				proxyLuminance[py * proxyWidth + px] = (byte) lum;
+				pixels[py * proxyWidth + px] = 0xFF000000 | lum << 16 | lum << 8 | lum;
 			}
-			// bottom right corner
-			picture.set(objectsProperties[i][3], objectsProperties[i][1], Color.RED); 
 		}
-		return picture;
+		ComponentImage proxy = new ComponentImage(fileLocation, proxyWidth, proxyHeight, pixels, proxyLuminance);
+		proxy.labeler = labeler;
+		proxy.pool = pool;
+		proxy.thresholdPixelValue = thresholdPixelValue;
+		proxy.automaticThreshold = automaticThreshold;
+		// areas shrink by the square of the factor
+		proxy.minimumArea = minimumArea / (factor * factor);
+		proxy.maximumArea = maximumArea == Integer.MAX_VALUE ? maximumArea
+				: (maximumArea + factor * factor - 1) / (factor * factor);
+		if (adaptiveThreshold != null) {
+			proxy.adaptiveThreshold = new AdaptiveThreshold(adaptiveThreshold.getMethod(),
+					Math.max(1, adaptiveThreshold.getWindow() / factor), adaptiveThreshold.getK());
+		}
+		return proxy;
 	}
 
 	/**
-	 * Returns the component identifier for the component containing site
-	 *
-	 * @param p
-	 *            the integer representing one object
-	 * @return the component identifier for the component containing site
 	 * 
-	 * @throws IndexOutOfBoundsException
-	 *             unless 0 < p < dimension
+	 * @return number of pixels at each level of luminance of the picture
 	 */
-	private int find(int p) {
-		while (p != id[p])
-			p = id[p];
-		return p;
+	public Histogram getHistogram() {
+		return new Histogram(getLuminance(), dimension);
 	}
 
 	/**
-	 * Returns true if the the two sites are in the same component.
-	 *
-	 * @param p
-	 *            the integer representing one site
-	 * @param q
-	 *            the integer representing the other site
-	 * @return <tt>true</tt> if the two sites <tt>p</tt> and <tt>q</tt> are in
-	 *         the same component; <tt>false</tt> otherwise
-	 * @throws IndexOutOfBoundsException
-	 *             unless both <tt>0 &le; p &lt; N</tt> and
-	 *             <tt>0 &le; q &lt; N</tt>
+	 * 
+	 * @return 8-bit luminance of the pixels of the picture, computed only if
+	 *         it is not known already
 	 */
-	private boolean connected(int p, int q) {
-		return find(p) == find(q);
+	private byte[] getLuminance() {
+		if (luminance == null) {
+			int[] pixels = PackedPixels.read(getRaster(), pool.lease(dimension));
+			luminance = Luminance.lumPlane(pixels, dimension, null);
+			pool.release(pixels);
+		}
+		return luminance;
 	}
 
 	/**
-	 * Merges the component containing site <tt>p</tt> with the the component
-	 * containing site <tt>q</tt>.
-	 *
-	 * @param p
-	 *            the integer representing one site
-	 * @param q
-	 *            the integer representing the other site
-	 * @throws IndexOutOfBoundsException
-	 *             unless both <tt>0 &le; p &lt; N</tt> and
-	 *             <tt>0 &le; q &lt; N</tt>
+	 * 
+	 * @return image backing the loaded picture - changes made to its raster
+	 *         are visible through the picture
 	 */
-	private void union(int p, int q) {
-		int rootP = find(p);
-		int rootQ = find(q);
-		if (rootP == rootQ)
-			return;
+	private BufferedImage getRaster() {
+		if (image == null) {
+			image = getRaster(picture);
+		}
+		return image;
+	}
+
+	/**
+	 * Picture does not expose its image directly, but the icon of its JLabel
+	 * wraps the very same BufferedImage. The label is never shown, so it can
+	 * be created on any thread
+	 * 
+	 * @param picture
+	 *            any picture
+	 * @return image backing the picture
+	 */
+	static BufferedImage getRaster(Picture picture) {
+		return (BufferedImage) ((ImageIcon) picture.getJLabel().getIcon()).getImage();
+	}
+
+	/**
+	 * this method renders the labelled image with object pixels white and
+	 * background black, without labelling it again
+	 * 
+	 * @return binarised picture
+	 */
+	public Picture renderBinaryImage() {
+		int[] pixels = renderBuffer();
+		for (counter = 0; counter < dimension; counter++) {
+			pixels[counter] = id[counter] == -1 ? BLACK : WHITE;
+		}
+		return render(pixels);
+	}
 
-		if (size[rootP] < size[rootQ]) {
-			id[rootP] = rootQ;
-			size[rootQ] += size[rootP];
-		} else {
-			id[rootQ] = rootP;
-			size[rootP] += size[rootQ];
+	/**
+	 * this method renders the pixels, which belong to the objects at the given
+	 * threshold, white and the background black, without labelling them. It
+	 * only reads the luminance of each pixel, so, together with the objects
+	 * count of sweepThresholds(), it is fast enough to show the objects of a
+	 * small copy of the image (see createProxy()) while the threshold is
+	 * being chosen
+	 * 
+	 * @param threshold
+	 *            threshold pixel value between 0 and 255
+	 * @return binarised picture
+	 */
+	public Picture renderThreshold(int threshold) {
+		byte[] level = getLuminance();
+		int[] pixels = renderBuffer();
+		for (counter = 0; counter < dimension; counter++) {
+			pixels[counter] = (level[counter] & 0xFF) < threshold ? BLACK : WHITE;
 		}
-		count--;
+		return render(pixels);
 	}
 
 	/**
-	 * two-pass image scan. Scans row by row from top to bottom and connects
-	 * adjacent sites. in second pass roots those sites, ie all of the sites,
-	 * which are connected to other site get the value of the parent site
+	 * 
+	 * @return array for the pixels of a view, leased from the pool until the
+	 *         view is rendered
 	 */
-	private void checkForObjects() {
-		// first pass
-		counter = 0;
+	private int[] renderBuffer() {
+		return pool.lease(dimension);
+	}
+
+	/**
+	 * writes the pixels of a view to a new picture and gives the array of the
+	 * pixels back to the pool. Each view has a picture of its own, which is
+	 * never changed afterwards, so a view rendered on a worker thread never
+	 * changes the picture being shown on the event dispatch thread
+	 * 
+	 * @return picture of the view
+	 */
+	private Picture render(int[] pixels) {
+		Picture rendered = new Picture(width, height);
+		PackedPixels.write(getRaster(rendered), pixels);
+		pool.release(pixels);
+		view = rendered;
+		return rendered;
+	}
+
+	/**
+	 * this method renders the labelled image with each of the objects filled
+	 * with random colour on black background. Colours are chosen once for
+	 * each labelling, so the view looks the same, when rendered again
+	 * 
+	 * @return picture with random-coloured objects
+	 * 
+	 */
+	public Picture colourComponentImage() {
+		if (colors == null) {
+			colors = new int[components];
+			for (int i = 0; i < components; i++) {
+				float red = (float) Math.random();
+				float green = (float) Math.random();
+				float blue = (float) Math.random();
+
+				colors[i] = new Color(red, green, blue).getRGB();
+			}
+		}
+		int[] pixels = renderBuffer();
+		for (counter = 0; counter < dimension; counter++) {
+			pixels[counter] = id[counter] == -1 ? BLACK : colors[id[counter]];
+		}
+		return render(pixels);
+	}
+
+	/**
+	 * this method draws lines around the objects found over a copy of the view
+	 * rendered last, or over the binarised image, if no view is rendered yet.
+	 * The details about the objects to be processed when drawing the lines
+	 * are stores in two-dimensional array coordinates
+	 * 
+	 * @return picture with boxes around objects
+	 * 
+	 */
+	public Picture highlightComponentImage() {
+		return highlightComponentImage(view);
+	}
+
+	/**
+	 * this method draws lines around the objects found over a copy of the
+	 * given view, eg the one being shown, which is not changed
+	 * 
+	 * @param base
+	 *            view of this image to draw the lines over, or null to draw
+	 *            them over the binarised image
+	 * @return picture with boxes around objects
+	 * @throws IllegalArgumentException
+	 *             if the view is not of the size of the image
+	 */
+	public Picture highlightComponentImage(Picture base) {
+		if (base != null && (base.width() != width || base.height() != height)) {
+			throw new IllegalArgumentException("view must be " + width + " x " + height + " pixels in size");
+		}
+		Picture overlay = base == null ? renderBinaryImage()
+				: render(PackedPixels.read(getRaster(base), renderBuffer()));
+		int[][] objectsProperties = getObjectsProperties();
+		for (int i = 0; i < objectsProperties.length; i++) {
+			for (int x = objectsProperties[i][0]; x < objectsProperties[i][1]; x++) {
+				overlay.set(objectsProperties[i][2], x, Color.RED);
+				overlay.set(objectsProperties[i][3], x, Color.RED);
+			}
+			for (int y = objectsProperties[i][2]; y < objectsProperties[i][3]; y++) {
+				overlay.set(y, objectsProperties[i][0], Color.RED);
+				overlay.set(y, objectsProperties[i][1], Color.RED);
+			}
+			// bottom right corner
+			overlay.set(objectsProperties[i][3], objectsProperties[i][1], Color.RED); 
+		}
+		return overlay;
+	}
+
+	/**
+	 * labels the objects with the labeler. Once labelled, all of the sites,
+	 * which are connected to other site get the value of the same root site
+	 */
+	void checkForObjects() {
+		unionFind = labeler.label(id, mask, 0, height);
+	}
+
+	/**
+	 * This method traverses through the array of pixels and compacts the root
+	 * labels of the objects into dense component indices 0..n-1, in order of
+	 * the first appearance of each object. Each pixel's site in id array is
+	 * replaced with the index of its component, so colouring and statistics
+	 * need only one array lookup per pixel. Root labels are kept in labels
+	 * array. The index of each component is kept at its root pixel, so no
+	 * other array of the size of the image is needed: a root pixel, which
+	 * comes before the pixel in the scan, holds its index already, a later
+	 * one holds it as -2 - index until its own turn comes. Object pixels are
+	 * taken from the binary mask run by run, and each run is filled with the
+	 * index of its first pixel, as a run never spans two objects. Features of
+	 * the objects are summed as the runs are filled, along with the runs of
+	 * the row above each run touches (see RegionFeatures), and are published
+	 * by calculateCoordinates().
+	 * 
+	 * Objects smaller than minimumArea or larger than maximumArea are dropped
+	 * once they are compacted, by their area summed with the features: the
+	 * objects kept are numbered again and the pixels of the dropped ones
+	 * become background, in id array and in the mask. They are left out of
+	 * the count, the statistics and the views. Only runs, whose index
+	 * changes, are filled again, and nothing is filled, when no object is
+	 * dropped
+	 */
+	void analyseObjectsLabels() {
+		// there are at most as many objects as components of the labeler
+		// and object pixels
+		int expected = unionFind == null ? 0 : Math.min(unionFind.count(), count);
+		if (labels == null || labels.length < expected) {
+			labels = new int[Math.max(16, expected)];
+		}
+		// features of the labelling before the last one are measured again
+		RegionFeatures features = spareFeatures == null ? new RegionFeatures() : spareFeatures;
+		spareFeatures = features;
+		measured = true;
+		features.clear(expected);
+		// runs touching at a corner are adjacent with 8-connectivity
+		int reach = labeler.getConnectivity() == Connectivity.EIGHT ? 1 : 0;
+		components = 0;
 		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				if (x > 0) {
-					if (id[counter] != -1) {
-						if (id[counter - 1] != -1) {
-							if (!connected(counter - 1, counter))
-								union(counter - 1, counter);
+			int row = y * width;
+			// run of the row above, which the next run may touch first
+			int aboveStart = y > 0 ? mask.nextSet(0, y - 1) : width;
+			int aboveEnd = y > 0 ? mask.nextClear(aboveStart, y - 1) : width;
+			int end;
+			for (int start = mask.nextSet(0, y); start < width; start = mask.nextSet(end, y)) {
+				end = mask.nextClear(start, y);
+				int i = row + start;
+				int root = id[i] < -1 ? i : id[i];
+				int component;
+				if (root < i) {
+					// index of the earlier root pixel
+					component = id[root];
+				} else {
+					int code = root == i ? id[i] : id[root];
+					if (code < -1) {
+						// root pixel, whose index is known already
+						component = -2 - code;
+					} else {
+						// first pixel of the object, root pixel is this one
+						// or a later one
+						if (components == labels.length) {
+							labels = Arrays.copyOf(labels, components * 2);
+						}
+						labels[components] = root;
+						component = features.addObject(root);
+						components++;
+						if (root >= row + end) {
+							id[root] = -2 - component;
 						}
 					}
 				}
-				// pixel at the top of the current pixel is only checked from row two on
-				if (y > 0 && x > 0) {
-					if (id[counter - width] != -1 && id[counter - 1] != -1 && id[counter] != -1) {
-						if (!connected(counter - width, counter))
-							union(counter - width, counter);
-						if (!connected(counter - width, counter - 1))
-							union(counter - width, counter - 1);
-					}
-					if (id[counter - 1] == -1 && id[counter - width] != -1 && id[counter] != -1) {
-						if (!connected(counter - width, counter))
-							union(counter - width, counter);
-					}
+				Arrays.fill(id, i, row + end, component);
+				// runs above, which end before this run can touch them, are
+				// not touched by the next runs either
+				while (aboveStart < width && aboveEnd + reach <= start) {
+					aboveStart = mask.nextSet(aboveEnd, y - 1);
+					aboveEnd = mask.nextClear(aboveStart, y - 1);
+				}
+				int overlap = 0;
+				int adjacent = 0;
+				for (int from = aboveStart, to = aboveEnd; from < width && from < end + reach; from = mask
+						.nextSet(to, y - 1), to = mask.nextClear(from, y - 1)) {
+					overlap += Math.max(0, Math.min(to, end) - Math.max(from, start));
+					adjacent++;
 				}
-				counter++;
+				features.addRun(component, start, end - 1, y, overlap, adjacent);
 			}
 		}
-		// second pass
-		counter = 0;
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				if (id[counter] != -1) {
-					id[counter] = find(id[counter]);
+		if (minimumArea > 1 || maximumArea < dimension) {
+			dropObjects(features);
+		}
+		colors = null;
+		count = components;
+	}
+
+	/**
+	 * drops the objects smaller than minimumArea or larger than maximumArea
+	 * and numbers the objects kept again, in the same order. New index of
+	 * each object, -1 for the dropped ones, is kept in an array leased from
+	 * the pool, and the first pixel of each run tells, if the run has to be
+	 * filled again
+	 */
+	private void dropObjects(RegionFeatures features) {
+		int[] index = pool.lease(components);
+		int kept = 0;
+		for (int component = 0; component < components; component++) {
+			int area = features.getArea(component);
+			if (area >= minimumArea && area <= maximumArea) {
+				labels[kept] = labels[component];
+				index[component] = kept++;
+			} else {
+				index[component] = -1;
+			}
+		}
+		if (kept < components) {
+			for (int y = 0; y < height; y++) {
+				int row = y * width;
+				int end;
+				for (int start = mask.nextSet(0, y); start < width; start = mask.nextSet(end, y)) {
+					end = mask.nextClear(start, y);
+					int component = id[row + start];
+					if (index[component] != component) {
+						Arrays.fill(id, row + start, row + end, index[component]);
+						if (index[component] == -1) {
+							mask.clear(start, end, y);
+						}
+					}
 				}
-				counter++;
 			}
+			features.keep(index, kept);
+			components = kept;
 		}
+		pool.release(index);
+	}
+
+	/**
+	 * this method gives the label array of the image back to its pool (see
+	 * setBufferPool()), so that the next image can be labelled without
+	 * allocating it, eg when the image is closed or replaced with the next
+	 * one. The objects found are dropped and the image has to be binarised
+	 * again, before its views are rendered
+	 */
+	public void release() {
+		pool.release(id);
+		id = null;
+		mask = null;
+		labels = null;
+		colors = null;
+		components = 0;
+		count = dimension;
+		objectsProperties = null;
+		regionFeatures = null;
+		spareFeatures = null;
+		measured = false;
+		componentIndex = null;
+		spareIndex = null;
+		indexed = false;
 	}
 
 	/**
-	 * This method traverses through the array of pixels and searches for pixels
-	 * with value != -1 and adds their labels to the hashSet, which will store
-	 * only unique values. then those labels are added to the ArrayList of
-	 * Integers to be used, when colouring the distinct objects Returns the
-	 * number of components identified in the image.
 	 * 
-	 * @return the number of components (between 1 and N)
+	 * @return pool the arrays of the image are leased from
 	 */
-	private void analyseObjectsLabels() {
-		Set<Integer> labelsValues = new HashSet<Integer>();
-		for (int i = 0; i < id.length; i++) {
-			if (id[i] != -1) {
-				labelsValues.add(id[i]);
-			}
-		}
-		labels = new ArrayList<Integer>();
-		Iterator<Integer> iter = labelsValues.iterator();
-		while (iter.hasNext()) {
-			labels.add((Integer) iter.next());
+	public BufferPool getBufferPool() {
+		return pool;
+	}
+
+	/**
+	 * setter for pool. Images share one pool by default, so that the next
+	 * image can reuse the arrays of the images released before. The arrays
+	 * of this image are released to its pool before
+	 * 
+	 * @param pool
+	 *            pool the arrays of the image are leased from
+	 */
+	public void setBufferPool(BufferPool pool) {
+		if (pool != null && pool != this.pool) {
+			release();
+			this.pool = pool;
 		}
 	}
 
@@ -286,71 +810,43 @@ public class ComponentImage {
 	}
 
 	/**
-	 * iterates through the image and estimates the lowest and highest x and y
-	 * values for each of the objects in the image along with pixel count for
-	 * each image and the value of the label of the image of and stores those
-	 * values in 2-d array.
+	 * publishes the features of the objects summed while compacting their
+	 * labels (see RegionFeatures). Features and index of the labelling before
+	 * are kept, eg to match the objects of two frames, and those of the one
+	 * before it are measured and built again in their arrays, so labelling
+	 * frames of a sequence does not allocate them for each frame
 	 */
-	private void calculateCoordinates() {
-		// only to be run if number of components is greater than 0
-		if (countComponents() > 0) {
-			// first value - number of labels, ie number of distinct objects
-			// second value - number of different values to be stored:
-			// min y, max y, min x, max x, pixels count and label
-			objectsProperties = new int[countComponents()][6];
-			for (int i = 0; i < countComponents(); i++) {
-				counter = 0;
-				int pixelsCounter = 0;
-				int tempX = 0;
-				int tempY = 0;
-				int maxX = 0;
-				int maxY = 0;
-				int minX = width;
-				int minY = height;
-				for (int y = 0; y < height; y++) {
-					for (int x = 0; x < width; x++) {
-						if (id[counter] == labels.get(i)) {
-							pixelsCounter++;
-							tempX = x;
-							tempY = y;
-							if (tempX > maxX) {
-								maxX = tempX;
-							}
-							if (tempX < minX) {
-								minX = tempX;
-							}
-							if (tempY > maxY) {
-								maxY = tempY;
-							}
-							if (tempY < minY) {
-								minY = tempY;
-							}
-						}
-						counter++;
-					}
-				}
-				// min y, max y, min x, max x, pixels count and label of the
-				// pixels belonging to the object
-				int[] coords = new int[] { minY, maxY, minX, maxX, pixelsCounter, labels.get(i) };
-				objectsProperties[i] = coords;
-			}
+	void calculateCoordinates() {
+		if (!measured) {
+			return;
 		}
-
+		measured = false;
+		RegionFeatures features = spareFeatures;
+		spareFeatures = regionFeatures;
+		regionFeatures = features;
+		if (indexed) {
+			ComponentIndex index = spareIndex;
+			spareIndex = componentIndex;
+			componentIndex = index;
+			indexed = false;
+		}
+		objectsProperties = null;
 	}
 
 	/**
 	 * this method iterates through objectsProperties array and looks for
-	 * smallest and largest object, based on pixel count and changes all of the
-	 * pixels of the largest one to green and smallest one to red
+	 * smallest and largest object, based on pixel count and renders the
+	 * binarised image with all of the pixels of the largest one green and
+	 * smallest one red
 	 * 
-	 * @return changed picture
+	 * @return binarised picture with the smallest and the largest object
 	 */
 	public Picture getSmallestAndLargest() {
 		int smallestIndex = 0;
 		int largestIndex = 0;
 		int largestPixelCount = 0;
 		int smallestPixelCount = dimension;
-		for (int i = 0; i < countComponents(); i++) {
+		for (int i = 0; i < components; i++) {
 			if (getObjectsProperties()[i][4] > largestPixelCount) {
 				largestIndex = i;
 				largestPixelCount = getObjectsProperties()[i][4];
@@ -360,38 +856,79 @@ public class ComponentImage {
 				smallestPixelCount = getObjectsProperties()[i][4];
 			}
 		}
-		counter = 0;
-		Color green = new Color(0, 176, 80);
-		Color red = new Color(255, 0, 0);
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				if (id[counter] == getObjectsProperties()[smallestIndex][5]) {
-					picture.set(x, y, red);
-				}
-				if (id[counter] == getObjectsProperties()[largestIndex][5]) {
-					picture.set(x, y, green);
-				}
-				counter++;
+		int green = new Color(0, 176, 80).getRGB();
+		int red = new Color(255, 0, 0).getRGB();
+		int[] pixels = renderBuffer();
+		for (counter = 0; counter < dimension; counter++) {
+			pixels[counter] = id[counter] == -1 ? BLACK : WHITE;
+			if (id[counter] == smallestIndex) {
+				pixels[counter] = red;
+			}
+			if (id[counter] == largestIndex) {
+				pixels[counter] = green;
 			}
 		}
-		return picture;
+		return render(pixels);
+	}
+
+	/**
+	 * 
+	 * @return union-find structure used in the last labelling, along with its
+	 *         find() statistics, or null if the image has not been binarised.
+	 *         What the sites of the structure are depends on the labeler
+	 */
+	public UnionFind getUnionFind() {
+		return unionFind;
+	}
+
+	/**
+	 * 
+	 * @return labeler used to label the objects
+	 */
+	public ComponentLabeler getLabeler() {
+		return labeler;
 	}
 
 	/**
-	 * setter for picture
+	 * setter for labeler. By default FourConnectedLabeler is used
+	 * 
+	 * @param labeler
+	 *            is passed to be used, when the image is binarised
+	 */
+	public void setLabeler(ComponentLabeler labeler) {
+		if (labeler != null) {
+			this.labeler = labeler;
+		}
+	}
+
+	/**
+	 * setter for picture. Views rendered before are dropped
 	 * 
 	 * @param picture
 	 *            is passed to be assigned as picture field
 	 */
 	public void setPicture(Picture picture) {
 		this.picture = picture;
+		image = null;
+		view = null;
+		luminance = null;
+		sharedLuminance = false;
 	}
 
 	/**
 	 * 
-	 * @return picture
+	 * @return picture of the view rendered last, or the loaded picture, if no
+	 *         view is rendered yet
 	 */
 	public Picture getPicture() {
+		return view != null ? view : picture;
+	}
+
+	/**
+	 * 
+	 * @return picture as loaded, which is never changed by the views
+	 */
+	public Picture getOriginal() {
 		return picture;
 	}
 
@@ -417,13 +954,168 @@ public class ComponentImage {
 		}
 	}
 
+	/**
+	 * 
+	 * @return true if the threshold pixel value is chosen automatically, when
+	 *         the image is binarised
+	 */
+	public boolean isAutomaticThreshold() {
+		return automaticThreshold;
+	}
+
+	/**
+	 * setter for automaticThreshold. When set, binaryComponentImage() chooses
+	 * the threshold pixel value with Otsu's method from the histogram of the
+	 * luminance, instead of using the one set with
+	 * setThresholdPixelValue(). The chosen value can be read afterwards with
+	 * getThresholdPixelValue()
+	 * 
+	 * @param automaticThreshold
+	 *            true to choose the threshold automatically
+	 */
+	public void setAutomaticThreshold(boolean automaticThreshold) {
+		this.automaticThreshold = automaticThreshold;
+	}
+
+	/**
+	 * 
+	 * @return threshold computed for each pixel, or null if the same
+	 *         threshold is used for all pixels
+	 */
+	public AdaptiveThreshold getAdaptiveThreshold() {
+		return adaptiveThreshold;
+	}
+
+	/**
+	 * setter for adaptiveThreshold. When set, binaryComponentImage()
+	 * compares each pixel with the threshold of its window, instead of the
+	 * threshold pixel value. Binarised picture is labelled in the same way
+	 * 
+	 * @param adaptiveThreshold
+	 *            threshold of each pixel, or null to use the same threshold
+	 *            for all pixels again
+	 */
+	public void setAdaptiveThreshold(AdaptiveThreshold adaptiveThreshold) {
+		this.adaptiveThreshold = adaptiveThreshold;
+	}
+
+	/**
+	 * 
+	 * @return pixels count of the smallest objects kept, when the image is
+	 *         binarised
+	 */
+	public int getMinimumArea() {
+		return minimumArea;
+	}
+
+	/**
+	 * setter for minimumArea. Objects with fewer pixels, eg specks of noise,
+	 * are dropped at the end of labelling, as if they were background. By
+	 * default no objects are dropped
+	 * 
+	 * @param minimumArea
+	 *            pixels count of the smallest objects to be kept, not
+	 *            negative
+	 */
+	public void setMinimumArea(int minimumArea) {
+		if (minimumArea >= 0) {
+			this.minimumArea = minimumArea;
+		}
+	}
+
+	/**
+	 * 
+	 * @return pixels count of the largest objects kept, when the image is
+	 *         binarised
+	 */
+	public int getMaximumArea() {
+		return maximumArea;
+	}
+
+	/**
+	 * setter for maximumArea. Objects with more pixels, eg the background
+	 * brighter than the threshold, are dropped at the end of labelling, as if
+	 * they were background. By default no objects are dropped
+	 * 
+	 * @param maximumArea
+	 *            pixels count of the largest objects to be kept, not negative
+	 */
+	public void setMaximumArea(int maximumArea) {
+		if (maximumArea >= 0) {
+			this.maximumArea = maximumArea;
+		}
+	}
+
 	/**
 	 * 
 	 * @return objectProperties array to be used in highlighting objects and
-	 *         painting the smallest and the largest object
+	 *         painting the smallest and the largest object. Each row holds min
+	 *         y, max y, min x, max x, pixels count and label of one object. The
+	 *         array is empty, if there are no objects, and null until the image
+	 *         is binarised
 	 */
-	private int[][] getObjectsProperties() {
+	public int[][] getObjectsProperties() {
+		if (objectsProperties == null && regionFeatures != null) {
+			// first value - number of labels, ie number of distinct objects
+			// second value - number of different values to be stored:
+			// min y, max y, min x, max x, pixels count and label of the
+			// pixels belonging to the object
+			objectsProperties = new int[components][];
+			for (int i = 0; i < components; i++) {
+				objectsProperties[i] = new int[] { regionFeatures.getMinY(i), regionFeatures.getMaxY(i),
+						regionFeatures.getMinX(i), regionFeatures.getMaxX(i), regionFeatures.getArea(i),
+						regionFeatures.getLabel(i) };
+			}
+		}
 		return objectsProperties;
 	}
 
+	/**
+	 * 
+	 * @return centroid, moments, orientation, perimeter, extent, Euler number
+	 *         and bounding box of each of the objects, null until the image
+	 *         is binarised. The features are measured again in the same
+	 *         arrays two labellings later
+	 */
+	public RegionFeatures getRegionFeatures() {
+		return regionFeatures;
+	}
+
+	/**
+	 * 
+	 * @return index of the bounding boxes of the objects, built the first
+	 *         time it is needed after each labelling, null until the image is
+	 *         binarised. As the features, the index is built again in the
+	 *         same arrays two labellings later
+	 */
+	public ComponentIndex getComponentIndex() {
+		if (!indexed && regionFeatures != null) {
+			if (componentIndex == null) {
+				componentIndex = new ComponentIndex(regionFeatures);
+			} else {
+				componentIndex.build(regionFeatures);
+			}
+			indexed = true;
+		}
+		return indexed ? componentIndex : null;
+	}
+
+	/**
+	 * 
+	 * @param x
+	 *            x of the pixel
+	 * @param y
+	 *            y of the pixel
+	 * @return component index of the object the pixel belongs to, -1 for
+	 *         background or if the image is not binarised
+	 * @throws IndexOutOfBoundsException
+	 *             if the pixel is outside of the image
+	 */
+	public int getComponentAt(int x, int y) {
+		if (x < 0 || x >= width || y < 0 || y >= height) {
+			throw new IndexOutOfBoundsException("pixel (" + x + ", " + y + ") is outside of the image");
+		}
+		return id == null ? -1 : id[y * width + x];
+	}
+
 }
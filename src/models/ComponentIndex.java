@@ -0,0 +1,364 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Static R-tree over the bounding boxes of the objects of a labelled
+ *         image, used to find the objects at a point, in a rectangle or
+ *         nearest to a point without checking all of them. The tree is
+ *         packed: boxes are sorted by the Hilbert curve value of their
+ *         centres and each NODE_SIZE consecutive boxes get a parent node,
+ *         level by level, until there is only the root left. Nodes are kept
+ *         in flat arrays - boxes of the objects first, then the nodes of each
+ *         level - so the tree takes a few arrays regardless of the number of
+ *         objects and is built in O(n log n). Queries visit O(log n) nodes
+ *         for each object found
+ */
+public class ComponentIndex {
+	public static final int NODE_SIZE = 16; // children of each node
+	private static final int HILBERT_SIDE = 1 << 15; // side of the grid of centres
+	private int objects; // number of objects
+	private int root; // node covering all objects
+	private int levels; // number of levels, including the object boxes
+	private int[] minX = new int[0]; // box of each object and each node
+	private int[] minY = new int[0];
+	private int[] maxX = new int[0];
+	private int[] maxY = new int[0];
+	// component index of each object box, first child of each node
+	private int[] indices = new int[0];
+	private int[] levelEnds = new int[0]; // end of the nodes of each level
+	private long[] order = new long[0]; // Hilbert value and index of each box
+	private int[] stack = new int[0]; // nodes to be visited by search()
+
+	/**
+	 * Initialise fields and builds the tree
+	 *
+	 * @param features
+	 *            features of the objects, whose bounding boxes are indexed
+	 */
+	public ComponentIndex(RegionFeatures features) {
+		build(features);
+	}
+
+	/**
+	 * this method builds the tree again, eg for the objects of the next frame
+	 * of a sequence. Arrays of the tree are reused, if they are long enough,
+	 * so building it for about the same number of objects allocates nothing
+	 *
+	 * @param features
+	 *            features of the objects, whose bounding boxes are indexed
+	 */
+	void build(RegionFeatures features) {
+		objects = features.size();
+		// number of nodes of all levels
+		int nodes = objects;
+		levels = 1;
+		for (int n = objects; n > 1; levels++) {
+			n = (n + NODE_SIZE - 1) / NODE_SIZE;
+			nodes += n;
+		}
+		root = nodes - 1;
+		if (minX.length < nodes) {
+			minX = new int[nodes];
+			minY = new int[nodes];
+			maxX = new int[nodes];
+			maxY = new int[nodes];
+			indices = new int[nodes];
+		}
+		if (levelEnds.length < levels) {
+			levelEnds = new int[levels];
+			stack = new int[NODE_SIZE * levels];
+		}
+		if (objects == 0) {
+			return;
+		}
+
+		// objects sorted by the Hilbert value of the centres of their boxes,
+		// packed with the index into longs
+		int boundsX = 0;
+		int boundsY = 0;
+		for (int i = 0; i < objects; i++) {
+			boundsX = Math.max(boundsX, features.getMaxX(i));
+			boundsY = Math.max(boundsY, features.getMaxY(i));
+		}
+		if (order.length < objects) {
+			order = new long[objects];
+		}
+		for (int i = 0; i < objects; i++) {
+			long centreX = ((long) features.getMinX(i) + features.getMaxX(i)) * HILBERT_SIDE / (2L * boundsX + 1);
+			long centreY = ((long) features.getMinY(i) + features.getMaxY(i)) * HILBERT_SIDE / (2L * boundsY + 1);
+			order[i] = (long) hilbert((int) centreX, (int) centreY) << 32 | i;
+		}
+		Arrays.sort(order, 0, objects);
+		for (int k = 0; k < objects; k++) {
+			int i = (int) order[k];
+			minX[k] = features.getMinX(i);
+			minY[k] = features.getMinY(i);
+			maxX[k] = features.getMaxX(i);
+			maxY[k] = features.getMaxY(i);
+			indices[k] = i;
+		}
+
+		// each level has a parent node for every NODE_SIZE nodes of the level
+		// below
+		int start = 0;
+		int end = objects;
+		levelEnds[0] = end;
+		for (int level = 1; level < levels; level++) {
+			int node = end;
+			for (int child = start; child < end; child += NODE_SIZE) {
+				int last = Math.min(end, child + NODE_SIZE);
+				minX[node] = Integer.MAX_VALUE;
+				minY[node] = Integer.MAX_VALUE;
+				maxX[node] = Integer.MIN_VALUE;
+				maxY[node] = Integer.MIN_VALUE;
+				for (int k = child; k < last; k++) {
+					minX[node] = Math.min(minX[node], minX[k]);
+					minY[node] = Math.min(minY[node], minY[k]);
+					maxX[node] = Math.max(maxX[node], maxX[k]);
+					maxY[node] = Math.max(maxY[node], maxY[k]);
+				}
+				indices[node] = child;
+				node++;
+			}
+			start = end;
+			end = node;
+			levelEnds[level] = end;
+		}
+	}
+
+	/**
+	 *
+	 * @return number of objects in the index
+	 */
+	public int size() {
+		return objects;
+	}
+
+	/**
+	 * this method finds the objects, whose bounding boxes contain the point
+	 *
+	 * @param x
+	 *            x of the point
+	 * @param y
+	 *            y of the point
+	 * @return component indices of the objects, in no particular order
+	 */
+	public int[] search(int x, int y) {
+		return search(x, y, x, y);
+	}
+
+	/**
+	 * this method finds the objects, whose bounding boxes intersect the
+	 * rectangle, ie share at least one pixel with it
+	 *
+	 * @param fromX
+	 *            lowest x of the rectangle
+	 * @param fromY
+	 *            lowest y of the rectangle
+	 * @param toX
+	 *            highest x of the rectangle
+	 * @param toY
+	 *            highest y of the rectangle
+	 * @return component indices of the objects, in no particular order
+	 */
+	public int[] search(int fromX, int fromY, int toX, int toY) {
+		int[] found = new int[16];
+		int[] nodes = new int[NODE_SIZE * levels];
+		int foundCount = search(fromX, fromY, toX, toY, found, nodes);
+		if (foundCount > found.length) {
+			found = new int[foundCount];
+			search(fromX, fromY, toX, toY, found, nodes);
+		}
+		return Arrays.copyOf(found, foundCount);
+	}
+
+	/**
+	 * this method finds the objects, whose bounding boxes intersect the
+	 * rectangle, as search() does, but stores them in the given array, so
+	 * that searching for each object of an image allocates nothing. The
+	 * nodes to be visited are kept by the index, so it must not be searched
+	 * with this method by several threads at once
+	 *
+	 * @param fromX
+	 *            lowest x of the rectangle
+	 * @param fromY
+	 *            lowest y of the rectangle
+	 * @param toX
+	 *            highest x of the rectangle
+	 * @param toY
+	 *            highest y of the rectangle
+	 * @param found
+	 *            array for the component indices of the objects, in no
+	 *            particular order
+	 * @return number of objects found. If it is greater than the length of
+	 *         found, only the first of them are stored, so the search can be
+	 *         repeated with a longer array
+	 */
+	public int search(int fromX, int fromY, int toX, int toY, int[] found) {
+		return search(fromX, fromY, toX, toY, found, stack);
+	}
+
+	private int search(int fromX, int fromY, int toX, int toY, int[] found, int[] nodes) {
+		if (objects == 0) {
+			return 0;
+		}
+		int foundCount = 0;
+		// nodes to be visited, starting with the root
+		int size = 0;
+		nodes[size++] = root;
+		while (size > 0) {
+			int node = nodes[--size];
+			if (minX[node] > toX || maxX[node] < fromX || minY[node] > toY || maxY[node] < fromY) {
+				continue;
+			}
+			if (node < objects) {
+				if (foundCount < found.length) {
+					found[foundCount] = indices[node];
+				}
+				foundCount++;
+			} else {
+				int first = indices[node];
+				int last = Math.min(first + NODE_SIZE, levelEnd(first));
+				for (int child = first; child < last; child++) {
+					nodes[size++] = child;
+				}
+			}
+		}
+		return foundCount;
+	}
+
+	/**
+	 * this method finds the k objects, whose bounding boxes are nearest to the
+	 * point. Distance to a box containing the point is 0. Nodes are visited
+	 * in order of their distance from the point, kept in a binary heap, so
+	 * the search stops once k objects are found
+	 *
+	 * @param x
+	 *            x of the point
+	 * @param y
+	 *            y of the point
+	 * @param k
+	 *            number of objects to be found
+	 * @return component indices of at most k objects, nearest first
+	 * @throws IllegalArgumentException
+	 *             if k &lt; 0
+	 */
+	public int[] nearest(int x, int y, int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("k must not be negative");
+		}
+		int[] found = new int[Math.min(k, objects)];
+		int foundCount = 0;
+		if (found.length == 0) {
+			return found;
+		}
+		// heap of the nodes to be visited: squared distance in the high bits,
+		// node in the low bits, so that the nearest node is on the top
+		long[] heap = new long[NODE_SIZE * levels + found.length];
+		int size = 0;
+		heap[size++] = entry(root, x, y);
+		while (size > 0 && foundCount < found.length) {
+			long top = heap[0];
+			heap[0] = heap[--size];
+			siftDown(heap, size);
+			int node = (int) top;
+			if (node < objects) {
+				found[foundCount++] = indices[node];
+			} else {
+				int first = indices[node];
+				int last = Math.min(first + NODE_SIZE, levelEnd(first));
+				for (int child = first; child < last; child++) {
+					if (size == heap.length) {
+						heap = Arrays.copyOf(heap, size * 2);
+					}
+					heap[size] = entry(child, x, y);
+					siftUp(heap, size++);
+				}
+			}
+		}
+		return Arrays.copyOf(found, foundCount);
+	}
+
+	/**
+	 *
+	 * @return end of the level of the node
+	 */
+	private int levelEnd(int node) {
+		int level = 0;
+		while (levelEnds[level] <= node) {
+			level++;
+		}
+		return levelEnds[level];
+	}
+
+	/**
+	 *
+	 * @return entry of the heap of nearest(), ordered by squared distance
+	 *         from the point to the box of the node
+	 */
+	private long entry(int node, int x, int y) {
+		long dx = Math.max(0, Math.max(minX[node] - (long) x, x - (long) maxX[node]));
+		long dy = Math.max(0, Math.max(minY[node] - (long) y, y - (long) maxY[node]));
+		// distances over 46340 pixels are all the same
+		long distance = Math.min(dx * dx + dy * dy, Integer.MAX_VALUE);
+		return distance << 32 | node;
+	}
+
+	private static void siftUp(long[] heap, int position) {
+		long entry = heap[position];
+		while (position > 0 && heap[(position - 1) / 2] > entry) {
+			heap[position] = heap[(position - 1) / 2];
+			position = (position - 1) / 2;
+		}
+		heap[position] = entry;
+	}
+
+	private static void siftDown(long[] heap, int size) {
+		if (size == 0) {
+			return;
+		}
+		long entry = heap[0];
+		int position = 0;
+		while (2 * position + 1 < size) {
+			int child = 2 * position + 1;
+			if (child + 1 < size && heap[child + 1] < heap[child]) {
+				child++;
+			}
+			if (heap[child] >= entry) {
+				break;
+			}
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = entry;
+	}
+
+	/**
+	 * maps a point of the HILBERT_SIDE x HILBERT_SIDE grid to its distance
+	 * along the Hilbert curve, so that points close on the curve are close on
+	 * the grid
+	 */
+	private static int hilbert(int x, int y) {
+		int distance = 0;
+		for (int s = HILBERT_SIDE / 2; s > 0; s >>= 1) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			distance += s * s * ((3 * rx) ^ ry);
+			// rotate the quadrant
+			if (ry == 0) {
+				if (rx == 1) {
+					x = HILBERT_SIDE - 1 - x;
+					y = HILBERT_SIDE - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return distance;
+	}
+
+}
@@ -0,0 +1,61 @@
+package models;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Strategy used by ComponentImage to label the objects of binarised
+ *         image. The pixels are given row by row in id array, where
+ *         background pixels are marked with -1 and every other value is
+ *         considered foreground. Once labelled, each foreground pixel holds
+ *         the index of one of the pixels of its object (root pixel), which is
+ *         unique for the object. Root pixels are labelled with their own
+ *         index
+ */
+public interface ComponentLabeler {
+
+	/**
+	 * labels the objects in given range of rows, as if there were no other
+	 * rows in the image, ie pixels in the first row are not joined with the
+	 * row above. Pixels outside of the range are not changed
+	 *
+	 * @param id
+	 *            pixels of the image, row by row
+	 * @param width
+	 *            width of the image
+	 * @param fromRow
+	 *            first row to be labelled
+	 * @param toRow
+	 *            row after the last row to be labelled
+	 * @return union-find structure used in labelling, along with its find()
+	 *         statistics
+	 */
+	UnionFind label(int[] id, int width, int fromRow, int toRow);
+
+	/**
+	 * labels the objects in given range of rows, as label(int[], int, int,
+	 * int) does, with the foreground pixels also given as a bit mask, so
+	 * that background can be skipped 64 pixels at a time. By default the
+	 * mask is not used
+	 *
+	 * @param id
+	 *            pixels of the image, row by row
+	 * @param mask
+	 *            foreground pixels of id array, at least of the given rows
+	 * @param fromRow
+	 *            first row to be labelled
+	 * @param toRow
+	 *            row after the last row to be labelled
+	 * @return union-find structure used in labelling, along with its find()
+	 *         statistics
+	 */
+	default UnionFind label(int[] id, BinaryMask mask, int fromRow, int toRow) {
+		return label(id, mask.getWidth(), fromRow, toRow);
+	}
+
+	/**
+	 *
+	 * @return which pixels are considered adjacent by this labeler
+	 */
+	Connectivity getConnectivity();
+
+}
@@ -0,0 +1,12 @@
+package models;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Defines which pixels are considered adjacent, when objects are
+ *         labelled. FOUR - only pixels sharing an edge (left, right, top and
+ *         bottom neighbour), EIGHT - also pixels touching at a corner
+ */
+public enum Connectivity {
+	FOUR, EIGHT
+}
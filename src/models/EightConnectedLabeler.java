@@ -0,0 +1,102 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Two-pass labelling, which joins pixels sharing an edge or a corner.
+ *         The neighbours checked are left, top left, top and top right one,
+ *         in the order of a decision tree: when the top neighbour is
+ *         foreground, all of the others are already in its object, so one
+ *         union is enough. Otherwise the top left and the left neighbour are
+ *         adjacent to each other, so at most one union is ever needed.
+ *         Foreground pixels are taken run by run from the binary mask, so
+ *         background is skipped 64 pixels at a time. Pixels joined with a
+ *         neighbour take its provisional label, so the union-find structure
+ *         only has a site for each label, not for each pixel, and the root
+ *         pixel of each object is the first pixel of its root label
+ */
+public class EightConnectedLabeler implements ComponentLabeler {
+
+	@Override
+	public UnionFind label(int[] id, int width, int fromRow, int toRow) {
+		return label(id, BinaryMask.fromLabels(id, width, fromRow, toRow), fromRow, toRow);
+	}
+
+	/**
+	 * {@inheritDoc} The rows are labelled run by run, where runs of
+	 * foreground pixels are found in the mask word by word
+	 */
+	@Override
+	public UnionFind label(int[] id, BinaryMask mask, int fromRow, int toRow) {
+		int width = mask.getWidth();
+		// provisional labels are sites of the structure, added as they are
+		// created, and are written to id array in the first pass
+		UnionFind unionFind = new UnionFind(0);
+		int[] firstPixel = new int[16]; // firstPixel[label] = first pixel given the label
+		// first pass
+		for (int y = fromRow; y < toRow; y++) {
+			int row = y * width;
+			boolean above = y > fromRow; // pixels above are only checked from row two on
+			int end;
+			for (int start = mask.nextSet(0, y); start < width; start = mask.nextSet(end, y)) {
+				end = mask.nextClear(start, y);
+				// the first pixel of a run has no left neighbour, so it takes
+				// the label of one of the three neighbours above or a new one
+				int counter = row + start;
+				int label = -1;
+				if (above) {
+					if (id[counter - width] != -1) {
+						label = id[counter - width];
+					} else {
+						if (start > 0 && id[counter - width - 1] != -1) {
+							label = id[counter - width - 1];
+						}
+						if (start < width - 1 && id[counter - width + 1] != -1) {
+							if (label != -1) {
+								unionFind.union(id[counter - width + 1], label);
+							} else {
+								label = id[counter - width + 1];
+							}
+						}
+					}
+				}
+				if (label == -1) {
+					label = unionFind.add();
+					if (label == firstPixel.length) {
+						firstPixel = Arrays.copyOf(firstPixel, label * 2);
+					}
+					firstPixel[label] = counter;
+				}
+				id[counter] = label;
+				// the other pixels take the label of the left neighbour, which
+				// touches the top left and the top neighbour, so only the top
+				// right one may need a union, when the top one is background
+				for (counter++; counter < row + end; counter++) {
+					if (above && id[counter - width] == -1 && counter - row < width - 1
+							&& id[counter - width + 1] != -1) {
+						unionFind.union(id[counter - width + 1], label);
+					}
+					id[counter] = label;
+				}
+			}
+		}
+		// second pass, all pixels of a run have the same label
+		for (int y = fromRow; y < toRow; y++) {
+			int row = y * width;
+			int end;
+			for (int start = mask.nextSet(0, y); start < width; start = mask.nextSet(end, y)) {
+				end = mask.nextClear(start, y);
+				Arrays.fill(id, row + start, row + end, firstPixel[unionFind.find(id[row + start])]);
+			}
+		}
+		return unionFind;
+	}
+
+	@Override
+	public Connectivity getConnectivity() {
+		return Connectivity.EIGHT;
+	}
+
+}
@@ -0,0 +1,87 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Two-pass labelling, which joins pixels sharing an edge. Only the
+ *         left and the top neighbour are checked, as the right and the bottom
+ *         one are checked, when their own turn comes. Foreground pixels are
+ *         taken run by run from the binary mask, so background is skipped
+ *         64 pixels at a time and all pixels of a run after the first one
+ *         have a foreground left neighbour: when also the top left neighbour
+ *         is foreground, the left and the top neighbour are already in the
+ *         same object and no union is needed. Pixels joined with a
+ *         neighbour take its provisional label, so the union-find structure
+ *         only has a site for each label, not for each pixel, and the root
+ *         pixel of each object is the first pixel of its root label
+ */
+public class FourConnectedLabeler implements ComponentLabeler {
+
+	@Override
+	public UnionFind label(int[] id, int width, int fromRow, int toRow) {
+		return label(id, BinaryMask.fromLabels(id, width, fromRow, toRow), fromRow, toRow);
+	}
+
+	/**
+	 * {@inheritDoc} The rows are labelled run by run, where runs of
+	 * foreground pixels are found in the mask word by word
+	 */
+	@Override
+	public UnionFind label(int[] id, BinaryMask mask, int fromRow, int toRow) {
+		int width = mask.getWidth();
+		// provisional labels are sites of the structure, added as they are
+		// created, and are written to id array in the first pass
+		UnionFind unionFind = new UnionFind(0);
+		int[] firstPixel = new int[16]; // firstPixel[label] = first pixel given the label
+		// first pass
+		for (int y = fromRow; y < toRow; y++) {
+			int row = y * width;
+			boolean above = y > fromRow; // pixels above are only checked from row two on
+			int end;
+			for (int start = mask.nextSet(0, y); start < width; start = mask.nextSet(end, y)) {
+				end = mask.nextClear(start, y);
+				// the first pixel of a run has no left neighbour, so it takes
+				// the label of the top neighbour or a new one
+				int counter = row + start;
+				int label;
+				if (above && id[counter - width] != -1) {
+					label = id[counter - width];
+				} else {
+					label = unionFind.add();
+					if (label == firstPixel.length) {
+						firstPixel = Arrays.copyOf(firstPixel, label * 2);
+					}
+					firstPixel[label] = counter;
+				}
+				id[counter] = label;
+				// the other pixels take the label of the left neighbour, the
+				// top neighbour only needs a union, when the top left one is
+				// background - otherwise it is in the object already
+				for (counter++; counter < row + end; counter++) {
+					if (above && id[counter - width] != -1 && id[counter - width - 1] == -1) {
+						unionFind.union(id[counter - width], label);
+					}
+					id[counter] = label;
+				}
+			}
+		}
+		// second pass, all pixels of a run have the same label
+		for (int y = fromRow; y < toRow; y++) {
+			int row = y * width;
+			int end;
+			for (int start = mask.nextSet(0, y); start < width; start = mask.nextSet(end, y)) {
+				end = mask.nextClear(start, y);
+				Arrays.fill(id, row + start, row + end, firstPixel[unionFind.find(id[row + start])]);
+			}
+		}
+		return unionFind;
+	}
+
+	@Override
+	public Connectivity getConnectivity() {
+		return Connectivity.FOUR;
+	}
+
+}
@@ -0,0 +1,91 @@
+package models;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Number of pixels of an image at each of the 256 levels of 8-bit
+ *         luminance. It is built in one pass over the luminance plane, and
+ *         the threshold separating the objects from the background is then
+ *         chosen with Otsu's method in one pass over the 256 levels
+ */
+public class Histogram {
+	public static final int LEVELS = 256;
+	private final int[] counts = new int[LEVELS]; // counts[l] = pixels at level l
+	private final int total; // number of pixels
+
+	/**
+	 * Initialise fields
+	 *
+	 * @param luminance
+	 *            8-bit luminance of the pixels, as computed by
+	 *            Luminance.lumPlane()
+	 * @param length
+	 *            number of pixels
+	 */
+	public Histogram(byte[] luminance, int length) {
+		for (int i = 0; i < length; i++) {
+			counts[luminance[i] & 0xFF]++;
+		}
+		total = length;
+	}
+
+	/**
+	 *
+	 * @param level
+	 *            luminance level between 0 and 255
+	 * @return number of pixels at the level
+	 * @throws IndexOutOfBoundsException
+	 *             unless 0 &le; level &le; 255
+	 */
+	public int count(int level) {
+		return counts[level];
+	}
+
+	/**
+	 *
+	 * @return number of pixels
+	 */
+	public int total() {
+		return total;
+	}
+
+	/**
+	 * chooses the threshold with Otsu's method, ie the one, for which the
+	 * variance between the mean luminance of the background and the mean
+	 * luminance of the objects, weighted by the number of pixels of both, is
+	 * the largest. Such a threshold also gives the lowest sum of variances
+	 * within the background and within the objects
+	 *
+	 * @return threshold pixel value between 1 and 255 - pixels darker than it
+	 *         are background. 1, if all pixels have the same luminance
+	 */
+	public int otsuThreshold() {
+		long sum = 0; // sum of the levels of all pixels
+		for (int level = 0; level < LEVELS; level++) {
+			sum += (long) level * counts[level];
+		}
+		long background = 0; // pixels at the levels up to the current one
+		long backgroundSum = 0; // sum of their levels
+		double bestVariance = -1;
+		int best = 0; // last level of the background
+		for (int level = 0; level < LEVELS; level++) {
+			background += counts[level];
+			backgroundSum += (long) level * counts[level];
+			long objects = total - background;
+			if (background == 0) {
+				continue;
+			}
+			if (objects == 0) {
+				break;
+			}
+			double difference = (double) backgroundSum / background - (double) (sum - backgroundSum) / objects;
+			double variance = (double) background * objects * difference * difference;
+			if (variance > bestVariance) {
+				bestVariance = variance;
+				best = level;
+			}
+		}
+		return Math.min(LEVELS - 1, best + 1);
+	}
+
+}
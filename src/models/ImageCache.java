@@ -0,0 +1,169 @@
+package models;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import edu.princeton.cs.introcs.Picture;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Keeps the pixels and the luminance of recently decoded images, so
+ *         that an image can be binarised again with another threshold without
+ *         reading and decoding the file. Images are identified by the path of
+ *         the file and the time of its last modification, so an image is
+ *         decoded again once its file changes. Memory used by the cached
+ *         images is bounded - once it exceeds the limit, the least recently
+ *         used images are dropped. Each image takes 5 bytes per pixel: 4 for
+ *         the packed rgb value and 1 for the luminance
+ */
+public class ImageCache {
+	private static final int BYTES_PER_PIXEL = 5;
+	private final long maxBytes;
+	private long bytes; // memory used by the cached images
+	private int hits; // number of images returned without decoding
+	private int misses; // number of images decoded
+	// images in order of use, the least recently used first
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	/**
+	 * decoded image along with the time of last modification of its file
+	 */
+	private static class Entry {
+		private final long lastModified;
+		private final int width;
+		private final int height;
+		private final int[] pixels;
+		private final byte[] luminance;
+
+		Entry(long lastModified, int width, int height, int[] pixels, byte[] luminance) {
+			this.lastModified = lastModified;
+			this.width = width;
+			this.height = height;
+			this.pixels = pixels;
+			this.luminance = luminance;
+		}
+
+		long bytes() {
+			return (long) width * height * BYTES_PER_PIXEL;
+		}
+	}
+
+	/**
+	 * Initialise fields
+	 *
+	 * @param maxBytes
+	 *            memory, which the cached images may use
+	 * @throws IllegalArgumentException
+	 *             if maxBytes &lt; 0
+	 */
+	public ImageCache(long maxBytes) {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("memory limit must not be negative");
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * creates a new ComponentImage of the file. The file is decoded only if
+	 * it is not cached or it has changed since. Each returned image has its
+	 * own picture, so it can be binarised without affecting the cache
+	 *
+	 * @param fileLocation
+	 *            path of the image
+	 * @return image ready to be binarised
+	 */
+	public ComponentImage load(String fileLocation) {
+		String path = new File(fileLocation).getAbsolutePath();
+		long lastModified = new File(fileLocation).lastModified();
+		Entry entry;
+		synchronized (this) {
+			entry = entries.get(path);
+			if (entry != null && entry.lastModified != lastModified) {
+				remove(path);
+				entry = null;
+			}
+			if (entry != null) {
+				hits++;
+			} else {
+				misses++;
+			}
+		}
+		if (entry == null) {
+			// decoded without holding the lock, so other images can be
+			// loaded in the meantime
+			Picture picture = new Picture(fileLocation);
+			int width = picture.width();
+			int height = picture.height();
+			int[] pixels = PackedPixels.read(ComponentImage.getRaster(picture), null);
+			byte[] luminance = Luminance.lumPlane(pixels, width * height, null);
+			entry = new Entry(lastModified, width, height, pixels, luminance);
+			put(path, entry);
+		}
+		return new ComponentImage(fileLocation, entry.width, entry.height, entry.pixels, entry.luminance);
+	}
+
+	private synchronized void put(String path, Entry entry) {
+		if (entry.bytes() > maxBytes) {
+			return;
+		}
+		remove(path);
+		entries.put(path, entry);
+		bytes += entry.bytes();
+		Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+		while (bytes > maxBytes) {
+			bytes -= eldest.next().getValue().bytes();
+			eldest.remove();
+		}
+	}
+
+	private void remove(String path) {
+		Entry removed = entries.remove(path);
+		if (removed != null) {
+			bytes -= removed.bytes();
+		}
+	}
+
+	/**
+	 * drops all of the cached images
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 *
+	 * @return number of cached images
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 *
+	 * @return memory used by the cached images
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 *
+	 * @return number of images returned without decoding the file
+	 */
+	public synchronized int getHits() {
+		return hits;
+	}
+
+	/**
+	 *
+	 * @return number of images decoded
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+
+}
@@ -24,6 +24,60 @@ public class Luminance {
         return .299*r + .587*g + .114*b;
     }
 
+    // return the monochrome luminance of given packed (A)RGB pixel value,
+    // without creating a Color object
+    public static double lum(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        return .299*r + .587*g + .114*b;
+    }
+
+    // products of the NTSC weights with each channel value, so that
+    // (RED[r] + GREEN[g]) + BLUE[b] is the very double lum() computes: the
+    // same products added in the same order, without the multiplications
+    private static final double[] RED = new double[256];
+    private static final double[] GREEN = new double[256];
+    private static final double[] BLUE = new double[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            RED[i] = .299*i;
+            GREEN[i] = .587*i;
+            BLUE[i] = .114*i;
+        }
+    }
+
+    // return the monochrome luminance of given packed (A)RGB pixel value
+    // rounded down, ie min(255, (int) lum(rgb)). It is looked up from the
+    // tables of the products, so it is exactly the same as lum() rounded
+    // down, also for luminances, which lum() computes just below a whole
+    // number (eg 0.9999999999999999 for r = g = b = 1), and thresholds at
+    // whole numbers give exactly the same pixels as lum()
+    public static int lum8(int rgb) {
+        int lum = (int) (RED[(rgb >> 16) & 0xFF] + GREEN[(rgb >> 8) & 0xFF] + BLUE[rgb & 0xFF]);
+        return lum > 255 ? 255 : lum;
+    }
+
+    // write lum8() of length packed (A)RGB pixel values of a row, starting
+    // at offset, to plane, starting at planeOffset
+    public static void lumRow(int[] rgb, int offset, byte[] plane, int planeOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            plane[planeOffset + i] = (byte) lum8(rgb[offset + i]);
+        }
+    }
+
+    // return lum8() of the first length packed (A)RGB pixel values, so that
+    // for any integer threshold t, (plane[i] & 0xFF) < t exactly when
+    // lum(rgb[i]) < t. plane is reused, unless it is null or too short
+    public static byte[] lumPlane(int[] rgb, int length, byte[] plane) {
+        if (plane == null || plane.length < length) {
+            plane = new byte[length];
+        }
+        lumRow(rgb, 0, plane, 0, length);
+        return plane;
+    }
+
     // return a gray version of this Color
     public static Color toGray(Color color) {
         int y = (int) (Math.round(lum(color)));   // round to nearest int
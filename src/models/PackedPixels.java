@@ -0,0 +1,161 @@
+package models;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Reads pixels of an image into an array of packed ARGB values and
+ *         writes them back. BufferedImage.getRGB() and setRGB() convert each
+ *         pixel through the colour model, which creates a small array per
+ *         pixel. For the image types produced by ImageIO for jpg and png files
+ *         and by Picture, the data buffer of the image is accessed directly
+ *         instead, so no object is created per pixel. Other types fall back to
+ *         getRGB() and setRGB()
+ */
+public class PackedPixels {
+
+	/**
+	 * reads all pixels of the image, row by row
+	 *
+	 * @param image
+	 *            image to be read
+	 * @param pixels
+	 *            array to be filled, a new one is created if it is null or too
+	 *            small
+	 * @return array of packed ARGB values
+	 */
+	public static int[] read(BufferedImage image, int[] pixels) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int dimension = width * height;
+		if (pixels == null || pixels.length < dimension) {
+			pixels = new int[dimension];
+		}
+		if (!isDirect(image)) {
+			return image.getRGB(0, 0, width, height, pixels, 0, width);
+		}
+		WritableRaster raster = image.getRaster();
+		switch (image.getType()) {
+		case BufferedImage.TYPE_INT_RGB: {
+			int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+			for (int i = 0; i < dimension; i++) {
+				pixels[i] = 0xFF000000 | data[i];
+			}
+			break;
+		}
+		case BufferedImage.TYPE_INT_ARGB: {
+			int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+			System.arraycopy(data, 0, pixels, 0, dimension);
+			break;
+		}
+		case BufferedImage.TYPE_3BYTE_BGR: {
+			byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+			for (int i = 0, j = 0; i < dimension; i++, j += 3) {
+				pixels[i] = 0xFF000000 | (data[j + 2] & 0xFF) << 16 | (data[j + 1] & 0xFF) << 8 | (data[j] & 0xFF);
+			}
+			break;
+		}
+		default: {
+			// TYPE_4BYTE_ABGR
+			byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+			for (int i = 0, j = 0; i < dimension; i++, j += 4) {
+				pixels[i] = (data[j] & 0xFF) << 24 | (data[j + 3] & 0xFF) << 16 | (data[j + 2] & 0xFF) << 8
+						| (data[j + 1] & 0xFF);
+			}
+			break;
+		}
+		}
+		return pixels;
+	}
+
+	/**
+	 * writes all pixels of the image, row by row
+	 *
+	 * @param image
+	 *            image to be written
+	 * @param pixels
+	 *            packed ARGB values of the pixels
+	 */
+	public static void write(BufferedImage image, int[] pixels) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int dimension = width * height;
+		if (!isDirect(image)) {
+			image.setRGB(0, 0, width, height, pixels, 0, width);
+			return;
+		}
+		WritableRaster raster = image.getRaster();
+		switch (image.getType()) {
+		case BufferedImage.TYPE_INT_RGB: {
+			int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+			for (int i = 0; i < dimension; i++) {
+				data[i] = pixels[i] & 0xFFFFFF;
+			}
+			break;
+		}
+		case BufferedImage.TYPE_INT_ARGB: {
+			int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+			System.arraycopy(pixels, 0, data, 0, dimension);
+			break;
+		}
+		case BufferedImage.TYPE_3BYTE_BGR: {
+			byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+			for (int i = 0, j = 0; i < dimension; i++, j += 3) {
+				int rgb = pixels[i];
+				data[j] = (byte) rgb;
+				data[j + 1] = (byte) (rgb >> 8);
+				data[j + 2] = (byte) (rgb >> 16);
+			}
+			break;
+		}
+		default: {
+			// TYPE_4BYTE_ABGR
+			byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+			for (int i = 0, j = 0; i < dimension; i++, j += 4) {
+				int argb = pixels[i];
+				data[j] = (byte) (argb >> 24);
+				data[j + 1] = (byte) argb;
+				data[j + 2] = (byte) (argb >> 8);
+				data[j + 3] = (byte) (argb >> 16);
+			}
+			break;
+		}
+		}
+	}
+
+	/**
+	 * data buffer can be accessed directly, if the image is of one of the
+	 * supported types and its pixels are stored row by row from the start of
+	 * the buffer, without any padding
+	 */
+	private static boolean isDirect(BufferedImage image) {
+		int type = image.getType();
+		if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB
+				&& type != BufferedImage.TYPE_3BYTE_BGR && type != BufferedImage.TYPE_4BYTE_ABGR) {
+			return false;
+		}
+		WritableRaster raster = image.getRaster();
+		if (raster.getParent() != null || raster.getSampleModelTranslateX() != 0
+				|| raster.getSampleModelTranslateY() != 0 || raster.getDataBuffer().getNumBanks() != 1
+				|| raster.getDataBuffer().getOffset() != 0) {
+			return false;
+		}
+		SampleModel sampleModel = raster.getSampleModel();
+		if (sampleModel instanceof SinglePixelPackedSampleModel) {
+			return ((SinglePixelPackedSampleModel) sampleModel).getScanlineStride() == image.getWidth();
+		}
+		if (sampleModel instanceof ComponentSampleModel) {
+			ComponentSampleModel components = (ComponentSampleModel) sampleModel;
+			return components.getScanlineStride() == image.getWidth() * components.getPixelStride();
+		}
+		return false;
+	}
+
+}
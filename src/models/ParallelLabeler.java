@@ -0,0 +1,200 @@
+package models;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Labels objects of a binarised image on several threads. The image
+ *         is split into horizontal strips, which are labelled concurrently on
+ *         a ForkJoinPool by another labeler, each with union-find structure
+ *         of its own, so the threads never touch the same sites. Once all
+ *         strips are labelled, objects crossing the borders between strips
+ *         are merged in a union-find structure built only over the labels
+ *         found on the border rows and the final labels are written back to
+ *         the strips concurrently again. The borders are crossed with the
+ *         connectivity of the strip labeler, so the objects are the same as
+ *         if it labelled the whole image
+ */
+public class ParallelLabeler implements ComponentLabeler {
+	private static final int STRIPS_PER_THREAD = 4; // more strips balance the load
+	private final ComponentLabeler strips;
+	private final int parallelism;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Initialises the pool of threads
+	 *
+	 * @param strips
+	 *            labeler used to label each of the strips, it has to be safe
+	 *            to be used by several threads at the same time
+	 * @param parallelism
+	 *            number of threads labelling the strips
+	 * @throws IllegalArgumentException
+	 *             if parallelism &lt; 1
+	 */
+	public ParallelLabeler(ComponentLabeler strips, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		this.strips = strips;
+		this.parallelism = parallelism;
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * {@inheritDoc} Sites of the returned union-find structure are the labels
+	 * found on the borders of the strips
+	 */
+	@Override
+	public UnionFind label(int[] id, int width, int fromRow, int toRow) {
+		return label(id, BinaryMask.fromLabels(id, width, fromRow, toRow), fromRow, toRow);
+	}
+
+	/**
+	 * {@inheritDoc} The mask is passed on to the labeler of the strips.
+	 * Sites of the returned union-find structure are the labels found on the
+	 * borders of the strips
+	 */
+	@Override
+	public UnionFind label(int[] id, BinaryMask mask, int fromRow, int toRow) {
+		int width = mask.getWidth();
+		int rows = toRow - fromRow;
+		int count = Math.min(rows, parallelism * STRIPS_PER_THREAD);
+		int[] firstRow = new int[count + 1];
+		for (int s = 0; s <= count; s++) {
+			firstRow[s] = fromRow + (int) ((long) rows * s / Math.max(count, 1));
+		}
+		pool.invoke(new Strips(id, mask, firstRow, 0, count, false));
+		UnionFind borders = mergeBorders(id, width, firstRow, count);
+		pool.invoke(new Strips(id, mask, firstRow, 0, count, true));
+		return borders;
+	}
+
+	@Override
+	public Connectivity getConnectivity() {
+		return strips.getConnectivity();
+	}
+
+	/**
+	 *
+	 * @return number of threads labelling the strips
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * stops the threads of the pool, once the labelling in progress is
+	 * finished. Each labeler has a pool of its own, so it should be shut down,
+	 * when it is no longer needed. The labeler cannot be used afterwards
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * joins the objects, which touch across the borders between the strips.
+	 * The labels found on both sides of each border are sorted, so that they
+	 * can be sites of a small union-find structure. After the merge, the
+	 * pixel of each border label gets its final label. As the root pixels are
+	 * labelled with their own index, the other pixels can then look their
+	 * final label up in one step
+	 */
+	private UnionFind mergeBorders(int[] id, int width, int[] firstRow, int count) {
+		// with 8-connectivity pixels above on the left and on the right are
+		// also neighbours
+		int reach = getConnectivity() == Connectivity.EIGHT ? 1 : 0;
+		int[] pairs = new int[16];
+		int pairsCount = 0;
+		for (int s = 1; s < count; s++) {
+			int counter = firstRow[s] * width;
+			for (int x = 0; x < width; x++) {
+				if (id[counter] != -1) {
+					for (int dx = Math.max(-reach, -x); dx <= reach && x + dx < width; dx++) {
+						if (id[counter - width + dx] != -1) {
+							if (pairsCount == pairs.length) {
+								pairs = Arrays.copyOf(pairs, pairsCount * 2);
+							}
+							pairs[pairsCount++] = id[counter - width + dx];
+							pairs[pairsCount++] = id[counter];
+						}
+					}
+				}
+				counter++;
+			}
+		}
+		int[] roots = Arrays.copyOf(pairs, pairsCount);
+		Arrays.sort(roots);
+		int rootsCount = 0;
+		for (int i = 0; i < roots.length; i++) {
+			if (i == 0 || roots[i] != roots[i - 1]) {
+				roots[rootsCount++] = roots[i];
+			}
+		}
+		UnionFind unionFind = new UnionFind(rootsCount);
+		for (int i = 0; i < pairsCount; i += 2) {
+			unionFind.union(Arrays.binarySearch(roots, 0, rootsCount, pairs[i]),
+					Arrays.binarySearch(roots, 0, rootsCount, pairs[i + 1]));
+		}
+		for (int i = 0; i < rootsCount; i++) {
+			id[roots[i]] = roots[unionFind.find(i)];
+		}
+		return unionFind;
+	}
+
+	/**
+	 * replaces the label of each pixel of the strip with the final label
+	 * stored at its root pixel. Root pixels themselves are never written, so
+	 * strips can be relabelled concurrently
+	 */
+	private static void relabelStrip(int[] id, int width, int fromRow, int toRow) {
+		for (int counter = fromRow * width; counter < toRow * width; counter++) {
+			int label = id[counter];
+			if (label != -1 && id[label] != label) {
+				id[counter] = id[label];
+			}
+		}
+	}
+
+	/**
+	 * labels or relabels range of strips, splitting it in halves until
+	 * single strips are left
+	 */
+	private class Strips extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int[] id;
+		private final BinaryMask mask;
+		private final int[] firstRow;
+		private final int from;
+		private final int to;
+		private final boolean relabel;
+
+		Strips(int[] id, BinaryMask mask, int[] firstRow, int from, int to, boolean relabel) {
+			this.id = id;
+			this.mask = mask;
+			this.firstRow = firstRow;
+			this.from = from;
+			this.to = to;
+			this.relabel = relabel;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Strips(id, mask, firstRow, from, middle, relabel),
+						new Strips(id, mask, firstRow, middle, to, relabel));
+			} else if (to - from == 1) {
+				if (relabel) {
+					relabelStrip(id, mask.getWidth(), firstRow[from], firstRow[to]);
+				} else {
+					strips.label(id, mask, firstRow[from], firstRow[to]);
+				}
+			}
+		}
+	}
+
+}
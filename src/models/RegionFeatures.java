@@ -0,0 +1,367 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Shape features of each object of a labelled image: bounding box,
+ *         area, centroid, second-order central moments and orientation,
+ *         perimeter, extent and Euler number. Features are kept in one
+ *         primitive array per feature, indexed by component, as numbered by
+ *         ComponentImage, so the table takes a few arrays regardless of the
+ *         number of objects. All of the features are summed run by run, while
+ *         ComponentImage compacts the labels, so they take no pass over the
+ *         image of their own. Each run is given with the pixels of the row
+ *         above it overlaps and the runs of the row above it is adjacent to.
+ *         Pixels above and below a pixel of an object, and runs adjacent to
+ *         its runs, always belong to the same object:
+ *
+ *         - perimeter is the number of pixel edges, which an object shares
+ *         with the background, another object or the edge of the image. Each
+ *         run has an edge at both of its ends, and each of its pixels an edge
+ *         above and below, unless the pixel there belongs to the object
+ *
+ *         - Euler number (number of objects minus number of holes, ie 1 -
+ *         holes for a single object) is the number of runs minus the number
+ *         of pairs of adjacent runs, as each hole closes a cycle of runs.
+ *         Which runs are adjacent is the same as for the labeler
+ *
+ *         Coordinates are those of the pixel centres, x growing to the right
+ *         and y downwards
+ */
+public class RegionFeatures {
+	private int components; // number of objects
+	private int[] labels = new int[16]; // root site of each object
+	private int[] area = new int[16]; // pixels count
+	private int[] minX = new int[16];
+	private int[] maxX = new int[16];
+	private int[] minY = new int[16];
+	private int[] maxY = new int[16];
+	private long[] sumX = new long[16]; // sums of the coordinates of the pixels
+	private long[] sumY = new long[16];
+	private long[] sumXX = new long[16]; // sums of the products of the coordinates
+	private long[] sumYY = new long[16];
+	private long[] sumXY = new long[16];
+	private int[] perimeter = new int[16];
+	private int[] euler = new int[16]; // runs minus pairs of adjacent runs
+
+	/**
+	 * this method drops the objects measured before, eg of the previous
+	 * frame of a sequence, so the objects of the next labelling can be
+	 * added. Arrays of the features are kept, if they are long enough, so
+	 * measuring images of the same size allocates nothing once the number of
+	 * objects stops growing
+	 *
+	 * @param capacity
+	 *            number of objects expected, eg counted by the labeler
+	 */
+	void clear(int capacity) {
+		components = 0;
+		if (area.length < capacity) {
+			grow(capacity);
+		}
+	}
+
+	/**
+	 * this method adds an object without any pixels. The arrays grow twice in
+	 * size, once they are full, eg if fewer objects were expected
+	 *
+	 * @param label
+	 *            root site of the object
+	 * @return component index of the object
+	 */
+	int addObject(int label) {
+		if (components == area.length) {
+			grow(components * 2);
+		}
+		labels[components] = label;
+		area[components] = 0;
+		minX[components] = Integer.MAX_VALUE;
+		maxX[components] = -1;
+		minY[components] = Integer.MAX_VALUE;
+		maxY[components] = -1;
+		sumX[components] = 0;
+		sumY[components] = 0;
+		sumXX[components] = 0;
+		sumYY[components] = 0;
+		sumXY[components] = 0;
+		perimeter[components] = 0;
+		euler[components] = 0;
+		return components++;
+	}
+
+	/**
+	 * makes the arrays of the features longer, keeping the objects added
+	 */
+	private void grow(int capacity) {
+		labels = Arrays.copyOf(labels, capacity);
+		area = Arrays.copyOf(area, capacity);
+		minX = Arrays.copyOf(minX, capacity);
+		maxX = Arrays.copyOf(maxX, capacity);
+		minY = Arrays.copyOf(minY, capacity);
+		maxY = Arrays.copyOf(maxY, capacity);
+		sumX = Arrays.copyOf(sumX, capacity);
+		sumY = Arrays.copyOf(sumY, capacity);
+		sumXX = Arrays.copyOf(sumXX, capacity);
+		sumYY = Arrays.copyOf(sumYY, capacity);
+		sumXY = Arrays.copyOf(sumXY, capacity);
+		perimeter = Arrays.copyOf(perimeter, capacity);
+		euler = Arrays.copyOf(euler, capacity);
+	}
+
+	/**
+	 * adds the pixels from (start, y) to (end, y) to the features of the
+	 * object. Runs are added row by row
+	 *
+	 * @param overlap
+	 *            number of pixels of the run, which have a pixel of the object
+	 *            above them
+	 * @param adjacent
+	 *            number of runs of the row above, which the run is adjacent to
+	 */
+	void addRun(int object, int start, int end, int y, int overlap, int adjacent) {
+		long pixels = end - start + 1;
+		long sum = (start + end) * pixels / 2;
+		// sum of x * x from start to end, as differences of sums from 0
+		long squares = squares(end) - squares(start - 1);
+		area[object] += pixels;
+		sumX[object] += sum;
+		sumY[object] += y * pixels;
+		sumXX[object] += squares;
+		sumYY[object] += (long) y * y * pixels;
+		sumXY[object] += y * sum;
+		if (start < minX[object]) {
+			minX[object] = start;
+		}
+		if (end > maxX[object]) {
+			maxX[object] = end;
+		}
+		if (y < minY[object]) {
+			minY[object] = y;
+		}
+		maxY[object] = y;
+		// edges above the overlapping pixels are not on the boundary, nor
+		// are the edges below the pixels of the run above them
+		perimeter[object] += 2 + 2 * (int) pixels - 2 * overlap;
+		euler[object] += 1 - adjacent;
+	}
+
+	/**
+	 * 
+	 * @return 0 * 0 + 1 * 1 + ... + n * n
+	 */
+	private static long squares(long n) {
+		return n * (n + 1) * (2 * n + 1) / 6;
+	}
+
+	/**
+	 * this method keeps only some of the objects, eg those within the area
+	 * limits, and numbers them again, in the same order
+	 *
+	 * @param index
+	 *            new component index of each object, -1 for the objects to be
+	 *            dropped
+	 * @param kept
+	 *            number of objects kept
+	 */
+	void keep(int[] index, int kept) {
+		for (int i = 0; i < components; i++) {
+			int to = index[i];
+			if (to == -1 || to == i) {
+				continue;
+			}
+			labels[to] = labels[i];
+			area[to] = area[i];
+			minX[to] = minX[i];
+			maxX[to] = maxX[i];
+			minY[to] = minY[i];
+			maxY[to] = maxY[i];
+			sumX[to] = sumX[i];
+			sumY[to] = sumY[i];
+			sumXX[to] = sumXX[i];
+			sumYY[to] = sumYY[i];
+			sumXY[to] = sumXY[i];
+			perimeter[to] = perimeter[i];
+			euler[to] = euler[i];
+		}
+		components = kept;
+	}
+
+	/**
+	 *
+	 * @return number of objects
+	 */
+	public int size() {
+		return components;
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return root site of the object, ie its label
+	 */
+	public int getLabel(int i) {
+		return labels[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return pixels count of the object
+	 */
+	public int getArea(int i) {
+		return area[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return lowest x of the pixels of the object
+	 */
+	public int getMinX(int i) {
+		return minX[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return highest x of the pixels of the object
+	 */
+	public int getMaxX(int i) {
+		return maxX[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return lowest y of the pixels of the object
+	 */
+	public int getMinY(int i) {
+		return minY[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return highest y of the pixels of the object
+	 */
+	public int getMaxY(int i) {
+		return maxY[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return mean x of the pixels of the object
+	 */
+	public double getCentroidX(int i) {
+		return (double) sumX[i] / area[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return mean y of the pixels of the object
+	 */
+	public double getCentroidY(int i) {
+		return (double) sumY[i] / area[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return second-order central moment mu20 divided by the area, ie
+	 *         variance of x of the pixels of the object
+	 */
+	public double getMomentXX(int i) {
+		double centroidX = getCentroidX(i);
+		return (double) sumXX[i] / area[i] - centroidX * centroidX;
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return second-order central moment mu02 divided by the area, ie
+	 *         variance of y of the pixels of the object
+	 */
+	public double getMomentYY(int i) {
+		double centroidY = getCentroidY(i);
+		return (double) sumYY[i] / area[i] - centroidY * centroidY;
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return second-order central moment mu11 divided by the area, ie
+	 *         covariance of x and y of the pixels of the object
+	 */
+	public double getMomentXY(int i) {
+		return (double) sumXY[i] / area[i] - getCentroidX(i) * getCentroidY(i);
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return angle between the x axis and the major axis of the ellipse with
+	 *         the same second-order moments as the object, in radians between
+	 *         -pi/2 and pi/2. As y grows downwards, positive angles are
+	 *         clockwise. 0 for objects without a major axis, eg squares
+	 */
+	public double getOrientation(int i) {
+		double xx = getMomentXX(i);
+		double yy = getMomentYY(i);
+		double xy = getMomentXY(i);
+		// moments are differences of large sums, so those of symmetric objects
+		// differ by rounding errors only
+		double rounding = 1e-9 * (xx + yy);
+		if (Math.abs(xx - yy) <= rounding && Math.abs(xy) <= rounding) {
+			return 0;
+		}
+		return 0.5 * Math.atan2(2 * xy, xx - yy);
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return number of pixel edges on the boundary of the object, including
+	 *         the boundaries of its holes
+	 */
+	public int getPerimeter(int i) {
+		return perimeter[i];
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return area of the object divided by the area of its bounding box
+	 */
+	public double getExtent(int i) {
+		return area[i] / ((double) (maxX[i] - minX[i] + 1) * (maxY[i] - minY[i] + 1));
+	}
+
+	/**
+	 *
+	 * @param i
+	 *            component index of the object
+	 * @return 1 - number of holes in the object
+	 */
+	public int getEulerNumber(int i) {
+		return euler[i];
+	}
+
+}
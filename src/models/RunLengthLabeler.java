@@ -0,0 +1,122 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Labels objects of a binarised image run by run instead of pixel by
+ *         pixel. Each row is first encoded as runs of adjacent foreground
+ *         pixels, then every run is joined with the runs of the row above,
+ *         which it touches, and finally all pixels of a run get the label of
+ *         the first pixel of its root run. Large solid objects are made of few
+ *         runs, so there is only a fraction of union-find operations comparing
+ *         to the per-pixel scan. With 4-connectivity runs have to overlap,
+ *         with 8-connectivity it is enough, if they touch at a corner
+ */
+public class RunLengthLabeler implements ComponentLabeler {
+	private final Connectivity connectivity;
+
+	/**
+	 * Initialises the labeler
+	 *
+	 * @param connectivity
+	 *            which pixels are considered adjacent
+	 */
+	public RunLengthLabeler(Connectivity connectivity) {
+		this.connectivity = connectivity;
+	}
+
+	/**
+	 * {@inheritDoc} Sites of the returned union-find structure are runs
+	 */
+	@Override
+	public UnionFind label(int[] id, int width, int fromRow, int toRow) {
+		return label(id, BinaryMask.fromLabels(id, width, fromRow, toRow), fromRow, toRow);
+	}
+
+	/**
+	 * {@inheritDoc} Sites of the returned union-find structure are runs,
+	 * which are found in the mask word by word
+	 */
+	@Override
+	public UnionFind label(int[] id, BinaryMask mask, int fromRow, int toRow) {
+		int width = mask.getWidth();
+		Runs encoded = new Runs(mask, fromRow, toRow);
+		int[] runStart = encoded.runStart;
+		int[] runEnd = encoded.runEnd;
+		int[] runRow = encoded.runRow;
+		int[] rowRuns = encoded.rowRuns;
+		int runs = encoded.runs;
+		// runs touching at a corner are joined with 8-connectivity
+		int reach = connectivity == Connectivity.EIGHT ? 1 : 0;
+		int rows = toRow - fromRow;
+		UnionFind unionFind = new UnionFind(runs);
+		for (int y = 1; y < rows; y++) {
+			int above = rowRuns[y - 1];
+			for (int run = rowRuns[y]; run < rowRuns[y + 1]; run++) {
+				while (above < rowRuns[y] && runEnd[above] + reach < runStart[run]) {
+					above++;
+				}
+				for (int i = above; i < rowRuns[y] && runStart[i] <= runEnd[run] + reach; i++) {
+					unionFind.union(i, run);
+				}
+			}
+		}
+		for (int run = 0; run < runs; run++) {
+			int root = unionFind.find(run);
+			int offset = runRow[run] * width;
+			Arrays.fill(id, offset + runStart[run], offset + runEnd[run] + 1, runRow[root] * width + runStart[root]);
+		}
+		return unionFind;
+	}
+
+	@Override
+	public Connectivity getConnectivity() {
+		return connectivity;
+	}
+
+	/**
+	 * runs of foreground pixels in given range of rows. Kept apart from the
+	 * labeler, so that one labeler can label several strips at the same time
+	 */
+	private static class Runs {
+		private int[] runStart; // first column of each run
+		private int[] runEnd; // last column of each run
+		private int[] runRow; // row of each run
+		private int[] rowRuns; // rowRuns[y - fromRow] = index of the first run in row y
+		private int runs; // number of runs
+
+		/**
+		 * scans the rows row by row and stores the first and the last column
+		 * of each run of foreground pixels. Words of the mask, which are all
+		 * background or all foreground, are skipped at once
+		 */
+		Runs(BinaryMask mask, int fromRow, int toRow) {
+			int width = mask.getWidth();
+			runStart = new int[16];
+			runEnd = new int[16];
+			runRow = new int[16];
+			rowRuns = new int[toRow - fromRow + 1];
+			runs = 0;
+			for (int y = fromRow; y < toRow; y++) {
+				rowRuns[y - fromRow] = runs;
+				int end;
+				for (int start = mask.nextSet(0, y); start < width; start = mask.nextSet(end, y)) {
+					end = mask.nextClear(start, y);
+					if (runs == runStart.length) {
+						runStart = Arrays.copyOf(runStart, runs * 2);
+						runEnd = Arrays.copyOf(runEnd, runs * 2);
+						runRow = Arrays.copyOf(runRow, runs * 2);
+					}
+					runStart[runs] = start;
+					runEnd[runs] = end - 1;
+					runRow[runs] = y;
+					runs++;
+				}
+			}
+			rowRuns[toRow - fromRow] = runs;
+		}
+	}
+
+}
@@ -0,0 +1,222 @@
+package models;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import edu.princeton.cs.introcs.Picture;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Labels the frames of a sequence, eg of a camera, and follows the
+ *         objects from frame to frame. All frames of the same size are
+ *         labelled by one ComponentImage, so its picture, luminance plane,
+ *         labels, features and index are reused instead of being allocated
+ *         for each frame - the image keeps those of the previous frame, while
+ *         the ones of the frame before it are filled again. Once a
+ *         frame of another size comes, the image is created again with the
+ *         same settings and the objects are not followed across that frame.
+ *
+ *         Each object gets the track of the object of the previous frame,
+ *         whose bounding box overlaps its own the most. Boxes of the previous
+ *         frame overlapping a box are found with the ComponentIndex of the
+ *         previous frame, so matching takes O(log n) for each object. Objects
+ *         are matched from the largest one, and each track is given to one
+ *         object only - objects without a match, eg new ones or the smaller
+ *         parts of a split object, start new tracks. Tracks are numbered
+ *         from 0 in order of their start
+ */
+public class SequenceProcessor {
+	private final double thresholdPixelValue; // threshold of the first frame
+	private final ComponentLabeler labeler; // labeler of the first frame
+	private ComponentImage image; // labels the frames, null until first frame
+	private RegionFeatures previousFeatures; // objects of the previous frame
+	private ComponentIndex previousIndex;
+	private int[] previousTracks = new int[0]; // track of each previous object
+	private int[] tracks = new int[0]; // track of each object of the frame
+	private boolean[] taken = new boolean[0]; // previous tracks already given
+	private long[] order = new long[0]; // objects sorted by area
+	private int[] candidates = new int[16]; // previous objects found by search
+	private int tracksCount; // number of tracks started
+	private int frames; // number of frames processed
+
+	/**
+	 * Initialise fields
+	 * 
+	 * @param thresholdPixelValue
+	 *            threshold pixel value between 0 and 255, with which the
+	 *            frames are binarised
+	 * @param labeler
+	 *            labeler of the objects of the frames
+	 */
+	public SequenceProcessor(double thresholdPixelValue, ComponentLabeler labeler) {
+		this.thresholdPixelValue = thresholdPixelValue;
+		this.labeler = labeler;
+	}
+
+	/**
+	 * Initialise fields, objects are labelled with FourConnectedLabeler
+	 * 
+	 * @param thresholdPixelValue
+	 *            threshold pixel value between 0 and 255, with which the
+	 *            frames are binarised
+	 */
+	public SequenceProcessor(double thresholdPixelValue) {
+		this(thresholdPixelValue, new FourConnectedLabeler());
+	}
+
+	/**
+	 * this method labels the next frame and gives a track to each of its
+	 * objects
+	 *
+	 * @param frame
+	 *            next frame of the sequence
+	 * @return image labelled with the frame, the same one for all frames of
+	 *         the same size. Its settings, eg threshold or labeler, can be
+	 *         changed between the frames. Once a frame of another size comes,
+	 *         the labels of the image are released to its pool, which the
+	 *         image of the new size leases from
+	 */
+	public ComponentImage process(BufferedImage frame) {
+		if (image == null || image.getPicture().width() != frame.getWidth()
+				|| image.getPicture().height() != frame.getHeight()) {
+			ComponentImage resized = new ComponentImage(new Picture(frame.getWidth(), frame.getHeight()));
+			if (image != null) {
+				resized.setThresholdPixelValue(image.getThresholdPixelValue());
+				resized.setAutomaticThreshold(image.isAutomaticThreshold());
+				resized.setAdaptiveThreshold(image.getAdaptiveThreshold());
+				resized.setLabeler(image.getLabeler());
+				resized.setMinimumArea(image.getMinimumArea());
+				resized.setMaximumArea(image.getMaximumArea());
+				image.release();
+				resized.setBufferPool(image.getBufferPool());
+			} else {
+				resized.setThresholdPixelValue(thresholdPixelValue);
+				resized.setLabeler(labeler);
+			}
+			image = resized;
+			previousFeatures = null;
+			previousIndex = null;
+		}
+		image.setFrame(frame);
+		image.labelComponents();
+		track(image.getRegionFeatures());
+		frames++;
+		return image;
+	}
+
+	/**
+	 * gives each object the track of the previous object, whose box overlaps
+	 * its box the most, starting with the largest object
+	 */
+	private void track(RegionFeatures features) {
+		int objects = features.size();
+		if (tracks.length < objects) {
+			tracks = new int[Math.max(objects, tracks.length * 2)];
+		}
+		if (order.length < objects) {
+			order = new long[Math.max(objects, order.length * 2)];
+		}
+		Arrays.fill(tracks, 0, objects, -1);
+		if (previousIndex != null && previousIndex.size() > 0) {
+			if (taken.length < previousIndex.size()) {
+				taken = new boolean[Math.max(previousIndex.size(), taken.length * 2)];
+			}
+			Arrays.fill(taken, 0, previousIndex.size(), false);
+			// largest objects first, area in the high bits
+			for (int i = 0; i < objects; i++) {
+				order[i] = (long) (Integer.MAX_VALUE - features.getArea(i)) << 32 | i;
+			}
+			Arrays.sort(order, 0, objects);
+			for (int k = 0; k < objects; k++) {
+				int i = (int) order[k];
+				int best = -1;
+				long bestOverlap = 0;
+				int found = previousIndex.search(features.getMinX(i), features.getMinY(i), features.getMaxX(i),
+						features.getMaxY(i), candidates);
+				if (found > candidates.length) {
+					candidates = new int[Math.max(found, candidates.length * 2)];
+					previousIndex.search(features.getMinX(i), features.getMinY(i), features.getMaxX(i),
+							features.getMaxY(i), candidates);
+				}
+				for (int c = 0; c < found; c++) {
+					int previous = candidates[c];
+					long overlap = overlap(features, i, previous);
+					if (!taken[previous] && (overlap > bestOverlap || (overlap == bestOverlap && previous < best))) {
+						best = previous;
+						bestOverlap = overlap;
+					}
+				}
+				if (best != -1) {
+					taken[best] = true;
+					tracks[i] = previousTracks[best];
+				}
+			}
+		}
+		for (int i = 0; i < objects; i++) {
+			if (tracks[i] == -1) {
+				tracks[i] = tracksCount++;
+			}
+		}
+		// tracks of this frame are the previous ones for the next frame
+		int[] swap = previousTracks;
+		previousTracks = tracks;
+		tracks = swap;
+		previousFeatures = features;
+		previousIndex = image.getComponentIndex();
+	}
+
+	/**
+	 *
+	 * @return number of pixels shared by the bounding box of the object and
+	 *         of the previous object
+	 */
+	private long overlap(RegionFeatures features, int i, int previous) {
+		long overlapWidth = Math.min(features.getMaxX(i), previousFeatures.getMaxX(previous))
+				- Math.max(features.getMinX(i), previousFeatures.getMinX(previous)) + 1;
+		long overlapHeight = Math.min(features.getMaxY(i), previousFeatures.getMaxY(previous))
+				- Math.max(features.getMinY(i), previousFeatures.getMinY(previous)) + 1;
+		return overlapWidth * overlapHeight;
+	}
+
+	/**
+	 *
+	 * @param component
+	 *            component index of an object of the last frame
+	 * @return track of the object
+	 * @throws IndexOutOfBoundsException
+	 *             unless 0 &le; component &lt; number of objects of the frame
+	 */
+	public int getTrack(int component) {
+		if (component < 0 || previousFeatures == null || component >= previousFeatures.size()) {
+			throw new IndexOutOfBoundsException("no object " + component + " in the last frame");
+		}
+		return previousTracks[component];
+	}
+
+	/**
+	 *
+	 * @return number of tracks started so far
+	 */
+	public int getTracksCount() {
+		return tracksCount;
+	}
+
+	/**
+	 *
+	 * @return number of frames processed so far
+	 */
+	public int getFrames() {
+		return frames;
+	}
+
+	/**
+	 *
+	 * @return image labelled with the last frame, null until the first frame
+	 *         is processed
+	 */
+	public ComponentImage getImage() {
+		return image;
+	}
+
+}
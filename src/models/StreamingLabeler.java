@@ -0,0 +1,483 @@
+package models;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.event.IIOReadUpdateListener;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import javax.imageio.stream.ImageInputStream;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Labels objects of an image row by row, without keeping the whole
+ *         image in memory, so that images larger than the heap can be
+ *         analysed. Each row is binarised with the same rule as in
+ *         ComponentImage - pixels darker than the threshold are background.
+ *         Only the labels of the previous and of the current row are kept,
+ *         along with union-find structure over the objects present in those
+ *         rows. At the end of each row, objects which do not reach it can no
+ *         longer grow, so their properties are passed to the listener straight
+ *         away and the labels of the remaining objects are compacted. The
+ *         memory used depends on the width of the image only
+ */
+public class StreamingLabeler {
+	private final int width;
+	private final double thresholdPixelValue;
+	private final boolean whole; // threshold is a whole number
+	private final Connectivity connectivity;
+	private final Listener listener;
+	private int[] previous; // labels of the previous row, -1 for background
+	private int[] current; // labels of the current row, -1 for background
+	private int active; // number of objects reaching the previous row
+	private int row; // index of the current row
+	private int count; // number of finished objects
+	// min y, max y, min x, max x and pixels count of each object
+	private int[] minY, maxY, minX, maxX, pixels;
+	private int[] newMinY, newMaxY, newMinX, newMaxX, newPixels;
+	private int[] compacted; // new label of each object reaching current row
+	private final UnionFind unionFind; // joins the labels of two rows
+
+	/**
+	 * receives properties of each object, as soon as the object is finished
+	 */
+	public interface Listener {
+
+		/**
+		 *
+		 * @param properties
+		 *            min y, max y, min x, max x, pixels count and label of the
+		 *            object, as in objectsProperties of ComponentImage. Labels
+		 *            are given in order of finishing the objects
+		 */
+		void componentFinished(int[] properties);
+	}
+
+	/**
+	 * Initialise fields
+	 *
+	 * @param width
+	 *            width of the image
+	 * @param thresholdPixelValue
+	 *            pixels with lower luminance are considered background
+	 * @param connectivity
+	 *            which pixels are considered adjacent
+	 * @param listener
+	 *            receives properties of the finished objects
+	 */
+	public StreamingLabeler(int width, double thresholdPixelValue, Connectivity connectivity, Listener listener) {
+		this.width = width;
+		this.thresholdPixelValue = thresholdPixelValue;
+		whole = thresholdPixelValue == Math.floor(thresholdPixelValue);
+		this.connectivity = connectivity;
+		this.listener = listener;
+		previous = new int[width];
+		current = new int[width];
+		Arrays.fill(previous, -1);
+		// each object needs at least one pixel and one gap in the row, so
+		// there are never more than width labels in two rows
+		int capacity = width + 1;
+		minY = new int[capacity];
+		maxY = new int[capacity];
+		minX = new int[capacity];
+		maxX = new int[capacity];
+		pixels = new int[capacity];
+		newMinY = new int[capacity];
+		newMaxY = new int[capacity];
+		newMinX = new int[capacity];
+		newMaxX = new int[capacity];
+		newPixels = new int[capacity];
+		compacted = new int[capacity];
+		unionFind = new UnionFind(capacity);
+	}
+
+	/**
+	 * reads the image from the file and labels it. Images, which are decoded
+	 * row by row in a single pass, eg baseline jpg and non-interlaced png
+	 * files, are decoded once from the top, each row being labelled as soon
+	 * as it is decoded. Progressive
+	 * and interlaced images, and formats other than jpg and png, are decoded
+	 * whole instead, which takes the memory of the whole image
+	 *
+	 * @param fileLocation
+	 *            path of the image
+	 * @param thresholdPixelValue
+	 *            pixels with lower luminance are considered background
+	 * @param connectivity
+	 *            which pixels are considered adjacent
+	 * @param listener
+	 *            receives properties of the finished objects
+	 * @return number of objects in the image
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	public static int label(String fileLocation, double thresholdPixelValue, Connectivity connectivity,
+			Listener listener) throws IOException {
+		ImageInputStream input = ImageIO.createImageInputStream(new File(fileLocation));
+		if (input == null) {
+			throw new IOException("Could not open file: " + fileLocation);
+		}
+		try {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+			if (!readers.hasNext()) {
+				throw new IOException("Invalid image file: " + fileLocation);
+			}
+			ImageReader reader = readers.next();
+			try {
+				reader.setInput(input, true, false);
+				return label(reader, thresholdPixelValue, connectivity, listener);
+			} finally {
+				reader.dispose();
+			}
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * labels the first image of the reader, as label() of a file does
+	 *
+	 * @param reader
+	 *            reader, whose input is set, along with the metadata
+	 * @return number of objects in the image
+	 * @throws IOException
+	 *             if the image cannot be read
+	 */
+	static int label(ImageReader reader, double thresholdPixelValue, Connectivity connectivity, Listener listener)
+			throws IOException {
+		int width = reader.getWidth(0);
+		int height = reader.getHeight(0);
+		StreamingLabeler labeler = new StreamingLabeler(width, thresholdPixelValue, connectivity, listener);
+		BufferedImage destination = singlePass(reader) ? rowDestination(reader, width, height) : null;
+		if (destination != null) {
+			labelRows(reader, destination, labeler);
+		} else {
+			labelWhole(reader, labeler);
+		}
+		if (labeler.row != height) {
+			throw new IOException("only " + labeler.row + " of " + height + " rows could be read");
+		}
+		return labeler.finish();
+	}
+
+	/**
+	 *
+	 * @return true if the format writes each row of the image to the
+	 *         destination once, in order from the top, and reports it at
+	 *         once, ie the image is not progressive nor interlaced
+	 */
+	private static boolean singlePass(ImageReader reader) throws IOException {
+		String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+		if (!format.equals("jpeg") && !format.equals("png")) {
+			return false;
+		}
+		IIOMetadata metadata = reader.getImageMetadata(0);
+		if (metadata == null || !metadata.isStandardMetadataFormatSupported()) {
+			return false;
+		}
+		Element tree = (Element) metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName);
+		NodeList scans = tree.getElementsByTagName("NumProgressiveScans");
+		return scans.getLength() == 0 || ((Element) scans.item(0)).getAttribute("value").equals("1");
+	}
+
+	/**
+	 * creates the destination of the image, whose rows all share the memory
+	 * of one row - the scanline stride is 0, so decoding the image takes the
+	 * memory of one row, whatever its height. A row is only valid until the
+	 * next one is decoded
+	 *
+	 * @return destination, null if the pixels of the image are not stored in
+	 *         a way, which allows it
+	 */
+	private static BufferedImage rowDestination(ImageReader reader, int width, int height) throws IOException {
+		Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+		if (!types.hasNext()) {
+			return null;
+		}
+		ImageTypeSpecifier type = types.next();
+		SampleModel sampleModel = type.getSampleModel(width, 1);
+		if (!(sampleModel instanceof ComponentSampleModel)) {
+			return null;
+		}
+		ComponentSampleModel pixels = (ComponentSampleModel) sampleModel;
+		SampleModel rows = new ComponentSampleModel(pixels.getDataType(), width, height, pixels.getPixelStride(), 0,
+				pixels.getBankIndices(), pixels.getBandOffsets());
+		WritableRaster raster = Raster.createWritableRaster(rows, null);
+		return new BufferedImage(type.getColorModel(), raster, type.getColorModel().isAlphaPremultiplied(), null);
+	}
+
+	/**
+	 * reads the packed rgb values of the row of the destination. Bytes of 8-bit
+	 * rgb images, eg of most jpg files, are read directly, the other images
+	 * are converted by their colour model
+	 */
+	private static void readRow(BufferedImage destination, int y, int[] rgb) {
+		int width = destination.getWidth();
+		WritableRaster raster = destination.getRaster();
+		ColorModel colorModel = destination.getColorModel();
+		if (!(raster.getDataBuffer() instanceof DataBufferByte) || raster.getDataBuffer().getNumBanks() != 1
+				|| !(colorModel instanceof ComponentColorModel)
+				|| colorModel.getNumComponents() != 3 || !colorModel.getColorSpace().isCS_sRGB()) {
+			destination.getRGB(0, y, width, 1, rgb, 0, width);
+			return;
+		}
+		ComponentSampleModel pixels = (ComponentSampleModel) raster.getSampleModel();
+		byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+		int[] offsets = pixels.getBandOffsets();
+		int pixelStride = pixels.getPixelStride();
+		int red = y * pixels.getScanlineStride() + offsets[0];
+		int green = red - offsets[0] + offsets[1];
+		int blue = red - offsets[0] + offsets[2];
+		for (int x = 0; x < width; x++, red += pixelStride, green += pixelStride, blue += pixelStride) {
+			rgb[x] = 0xFF000000 | (data[red] & 0xFF) << 16 | (data[green] & 0xFF) << 8 | (data[blue] & 0xFF);
+		}
+	}
+
+	/**
+	 * decodes the image once, labelling each row as soon as the reader
+	 * reports it decoded, before the next row overwrites it
+	 */
+	private static void labelRows(final ImageReader reader, final BufferedImage destination,
+			final StreamingLabeler labeler) throws IOException {
+		final int width = destination.getWidth();
+		final int[] rgb = new int[width];
+		IIOReadUpdateListener rows = new IIOReadUpdateListener() {
+			@Override
+			public void imageUpdate(ImageReader source, BufferedImage image, int minX, int minY, int updateWidth,
+					int updateHeight, int periodX, int periodY, int[] bands) {
+				if (minY != labeler.row || updateHeight != 1 || periodY != 1) {
+					// rows are only kept until the next one is decoded
+					reader.abort();
+					return;
+				}
+				readRow(destination, minY, rgb);
+				labeler.addRow(rgb);
+			}
+
+			@Override
+			public void passStarted(ImageReader source, BufferedImage image, int pass, int minPass, int maxPass,
+					int minX, int minY, int periodX, int periodY, int[] bands) {
+			}
+
+			@Override
+			public void passComplete(ImageReader source, BufferedImage image) {
+			}
+
+			@Override
+			public void thumbnailPassStarted(ImageReader source, BufferedImage thumbnail, int pass, int minPass,
+					int maxPass, int minX, int minY, int periodX, int periodY, int[] bands) {
+			}
+
+			@Override
+			public void thumbnailUpdate(ImageReader source, BufferedImage thumbnail, int minX, int minY,
+					int updateWidth, int updateHeight, int periodX, int periodY, int[] bands) {
+			}
+
+			@Override
+			public void thumbnailPassComplete(ImageReader source, BufferedImage thumbnail) {
+			}
+		};
+		ImageReadParam param = reader.getDefaultReadParam();
+		param.setDestination(destination);
+		reader.addIIOReadUpdateListener(rows);
+		try {
+			reader.read(0, param);
+		} finally {
+			reader.removeIIOReadUpdateListener(rows);
+		}
+	}
+
+	/**
+	 * reads the whole image at once, as rows of a progressive or interlaced
+	 * image are not final until the last pass, and labels its rows
+	 */
+	private static void labelWhole(ImageReader reader, StreamingLabeler labeler) throws IOException {
+		BufferedImage image = reader.read(0, reader.getDefaultReadParam());
+		int width = image.getWidth();
+		int[] rgb = new int[width];
+		for (int y = 0; y < image.getHeight(); y++) {
+			image.getRGB(0, y, width, 1, rgb, 0, width);
+			labeler.addRow(rgb);
+		}
+	}
+
+	/**
+	 * binarises and labels next row of the image. Objects, which do not
+	 * reach this row, are finished
+	 *
+	 * @param rgb
+	 *            packed rgb values of the pixels of the row
+	 * @throws IllegalArgumentException
+	 *             if the row is shorter than the width of the image
+	 */
+	public void addRow(int[] rgb) {
+		if (rgb.length < width) {
+			throw new IllegalArgumentException("row shorter than width of the image");
+		}
+		// there are never more than width labels in two rows, the structure
+		// is reset for each row instead of being allocated again
+		unionFind.reset(width + 1);
+		int labels = active;
+		for (int x = 0; x < width; x++) {
+			// 8-bit luminance gives the same result at whole thresholds
+			if ((whole ? Luminance.lum8(rgb[x]) : Luminance.lum(rgb[x])) < thresholdPixelValue) {
+				current[x] = -1;
+				continue;
+			}
+			int label = -1;
+			if (x > 0) {
+				label = join(unionFind, label, current[x - 1]);
+			}
+			label = join(unionFind, label, previous[x]);
+			if (connectivity == Connectivity.EIGHT) {
+				if (x > 0) {
+					label = join(unionFind, label, previous[x - 1]);
+				}
+				if (x < width - 1) {
+					label = join(unionFind, label, previous[x + 1]);
+				}
+			}
+			if (label == -1) {
+				label = labels++;
+				minY[label] = row;
+				maxY[label] = row;
+				minX[label] = x;
+				maxX[label] = x;
+				pixels[label] = 0;
+			}
+			current[x] = label;
+			int root = unionFind.find(label);
+			pixels[root]++;
+			maxY[root] = row;
+			minX[root] = Math.min(minX[root], x);
+			maxX[root] = Math.max(maxX[root], x);
+		}
+		// objects reaching this row get new labels in order of appearance
+		Arrays.fill(compacted, 0, labels, -1);
+		int next = 0;
+		for (int x = 0; x < width; x++) {
+			if (current[x] != -1) {
+				int root = unionFind.find(current[x]);
+				if (compacted[root] == -1) {
+					compacted[root] = next;
+					newMinY[next] = minY[root];
+					newMaxY[next] = maxY[root];
+					newMinX[next] = minX[root];
+					newMaxX[next] = maxX[root];
+					newPixels[next] = pixels[root];
+					next++;
+				}
+				current[x] = compacted[root];
+			}
+		}
+		// the other objects are finished
+		for (int label = 0; label < labels; label++) {
+			if (compacted[label] == -1 && unionFind.find(label) == label) {
+				finished(label);
+			}
+		}
+		swapStatistics();
+		int[] temp = previous;
+		previous = current;
+		current = temp;
+		active = next;
+		row++;
+	}
+
+	/**
+	 * finishes all of the objects reaching the last row
+	 *
+	 * @return number of objects in the image
+	 */
+	public int finish() {
+		for (int label = 0; label < active; label++) {
+			finished(label);
+		}
+		active = 0;
+		Arrays.fill(previous, -1);
+		return count;
+	}
+
+	/**
+	 *
+	 * @return number of objects finished so far
+	 */
+	public int countComponents() {
+		return count;
+	}
+
+	/**
+	 * joins the object of the pixel with the object of its neighbour. The
+	 * properties of both objects are merged at the new root
+	 *
+	 * @return label of the pixel, the neighbour's label if the pixel had no
+	 *         label yet
+	 */
+	private int join(UnionFind unionFind, int label, int neighbour) {
+		if (neighbour == -1) {
+			return label;
+		}
+		if (label == -1) {
+			return neighbour;
+		}
+		int rootP = unionFind.find(label);
+		int rootQ = unionFind.find(neighbour);
+		if (unionFind.union(rootP, rootQ)) {
+			int root = unionFind.find(rootP);
+			int other = root == rootP ? rootQ : rootP;
+			minY[root] = Math.min(minY[root], minY[other]);
+			maxY[root] = Math.max(maxY[root], maxY[other]);
+			minX[root] = Math.min(minX[root], minX[other]);
+			maxX[root] = Math.max(maxX[root], maxX[other]);
+			pixels[root] += pixels[other];
+		}
+		return label;
+	}
+
+	private void finished(int label) {
+		listener.componentFinished(
+				new int[] { minY[label], maxY[label], minX[label], maxX[label], pixels[label], count });
+		count++;
+	}
+
+	/**
+	 * properties of compacted labels become the current ones
+	 */
+	private void swapStatistics() {
+		int[] temp = minY;
+		minY = newMinY;
+		newMinY = temp;
+		temp = maxY;
+		maxY = newMaxY;
+		newMaxY = temp;
+		temp = minX;
+		minX = newMinX;
+		newMinX = temp;
+		temp = maxX;
+		maxX = newMaxX;
+		newMaxX = temp;
+		temp = pixels;
+		pixels = newPixels;
+		newPixels = temp;
+	}
+
+}
@@ -0,0 +1,96 @@
+package models;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Number of objects, number of object pixels and pixel count of the
+ *         largest object in an image for each of the 256 threshold pixel
+ *         values, as if the image was binarised with each of them. It is
+ *         created by sweepThresholds() of ComponentImage, which labels the
+ *         image only once for all of the thresholds
+ */
+public class ThresholdSweep {
+	public static final int THRESHOLDS = 256;
+	private final int[] counts; // counts[t] = number of objects at threshold t
+	private final int[] foreground; // foreground[t] = number of object pixels
+	private final int[] largest; // largest[t] = pixels count of largest object
+
+	/**
+	 * Initialise fields
+	 *
+	 * @param counts
+	 *            number of objects at each threshold
+	 * @param foreground
+	 *            number of object pixels at each threshold
+	 * @param largest
+	 *            pixels count of the largest object at each threshold
+	 */
+	ThresholdSweep(int[] counts, int[] foreground, int[] largest) {
+		this.counts = counts;
+		this.foreground = foreground;
+		this.largest = largest;
+	}
+
+	/**
+	 *
+	 * @param threshold
+	 *            threshold pixel value between 0 and 255
+	 * @return number of objects in the image binarised with the threshold
+	 * @throws IndexOutOfBoundsException
+	 *             unless 0 &le; threshold &le; 255
+	 */
+	public int countComponents(int threshold) {
+		return counts[threshold];
+	}
+
+	/**
+	 *
+	 * @param threshold
+	 *            threshold pixel value between 0 and 255
+	 * @return number of pixels, which are not darker than the threshold, ie
+	 *         belong to the objects
+	 * @throws IndexOutOfBoundsException
+	 *             unless 0 &le; threshold &le; 255
+	 */
+	public int getForeground(int threshold) {
+		return foreground[threshold];
+	}
+
+	/**
+	 *
+	 * @param threshold
+	 *            threshold pixel value between 0 and 255
+	 * @return pixels count of the largest object, 0 if there are no objects
+	 * @throws IndexOutOfBoundsException
+	 *             unless 0 &le; threshold &le; 255
+	 */
+	public int getLargest(int threshold) {
+		return largest[threshold];
+	}
+
+	/**
+	 * looks for the longest range of thresholds, over which the number of
+	 * objects does not change. Such a count does not depend much on the exact
+	 * choice of the threshold, so it is a good starting point for the slider.
+	 * Ranges without any objects are skipped
+	 *
+	 * @return threshold in the middle of the range, 128 if there are no objects
+	 *         at any threshold
+	 */
+	public int getMostStableThreshold() {
+		int bestStart = -1;
+		int bestLength = 0;
+		int start = 0;
+		for (int t = 1; t <= THRESHOLDS; t++) {
+			if (t == THRESHOLDS || counts[t] != counts[start]) {
+				if (counts[start] > 0 && t - start > bestLength) {
+					bestStart = start;
+					bestLength = t - start;
+				}
+				start = t;
+			}
+		}
+		return bestStart == -1 ? THRESHOLDS / 2 : bestStart + (bestLength - 1) / 2;
+	}
+
+}
@@ -0,0 +1,229 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         Union-find structure over N sites, numbered from 0 to N-1. Union by
+ *         rank keeps the trees shallow and path halving in find() flattens
+ *         them further on every lookup, so any sequence of operations runs in
+ *         nearly linear time. union() looks up both roots only once and
+ *         reports whether two components were merged, so there is no need to
+ *         call connected() before it. Size of each component is kept at its
+ *         root. The structure counts the steps taken by find() and the
+ *         longest path it has followed, to check how deep the trees grow on a
+ *         given input. Sites can be added one by one, eg as provisional labels
+ *         are created, so the structure takes memory for the sites in use
+ *         only, and it can be reset to be used again without allocating
+ */
+public class UnionFind {
+	private int[] parent; // parent[i] = parent of i
+	private byte[] rank; // rank[i] = upper bound of the height of tree rooted at i
+	private int[] size; // size[i] = number of sites in tree rooted at i
+	private int sites; // number of sites in use
+	private int count; // number of components
+	private long findCalls; // number of calls of find()
+	private long findSteps; // number of links followed by find()
+	private int maxDepth; // longest path followed by find()
+
+	/**
+	 * Initialises N sites, each of them in its own component
+	 *
+	 * @param n
+	 *            the number of sites
+	 * @throws IllegalArgumentException
+	 *             if n &lt; 0
+	 */
+	public UnionFind(int n) {
+		if (n < 0) {
+			throw new IllegalArgumentException("number of sites must not be negative");
+		}
+		parent = new int[n];
+		rank = new byte[n];
+		size = new int[n];
+		reset(n);
+	}
+
+	/**
+	 * puts each of the first n sites back in its own component and drops the
+	 * other sites and the find() statistics. The arrays are only allocated
+	 * again, if they are shorter than n
+	 *
+	 * @param n
+	 *            the number of sites
+	 * @throws IllegalArgumentException
+	 *             if n &lt; 0
+	 */
+	public void reset(int n) {
+		if (n < 0) {
+			throw new IllegalArgumentException("number of sites must not be negative");
+		}
+		if (parent.length < n) {
+			parent = new int[n];
+			rank = new byte[n];
+			size = new int[n];
+		}
+		for (int i = 0; i < n; i++) {
+			parent[i] = i;
+			rank[i] = 0;
+			size[i] = 1;
+		}
+		sites = n;
+		count = n;
+		findCalls = 0;
+		findSteps = 0;
+		maxDepth = 0;
+	}
+
+	/**
+	 * this method adds a new site in a component of its own. The arrays grow
+	 * twice in size, once they are full, so adding a site takes constant
+	 * amortised time
+	 *
+	 * @return the integer representing the new site
+	 */
+	public int add() {
+		if (sites == parent.length) {
+			int capacity = Math.max(16, sites * 2);
+			parent = Arrays.copyOf(parent, capacity);
+			rank = Arrays.copyOf(rank, capacity);
+			size = Arrays.copyOf(size, capacity);
+		}
+		parent[sites] = sites;
+		rank[sites] = 0;
+		size[sites] = 1;
+		count++;
+		return sites++;
+	}
+
+	/**
+	 *
+	 * @return the number of sites
+	 */
+	public int sites() {
+		return sites;
+	}
+
+	/**
+	 *
+	 * @return the number of components
+	 */
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * Returns the component identifier for the component containing site.
+	 * Every other site on the way to the root is linked to its grandparent
+	 * (path halving)
+	 *
+	 * @param p
+	 *            the integer representing one site
+	 * @return the component identifier for the component containing site
+	 * @throws IndexOutOfBoundsException
+	 *             unless 0 &le; p &lt; N
+	 */
+	public int find(int p) {
+		int depth = 0;
+		while (p != parent[p]) {
+			parent[p] = parent[parent[p]];
+			p = parent[p];
+			depth++;
+		}
+		findCalls++;
+		findSteps += depth;
+		if (depth > maxDepth) {
+			maxDepth = depth;
+		}
+		return p;
+	}
+
+	/**
+	 * Returns true if the the two sites are in the same component.
+	 *
+	 * @param p
+	 *            the integer representing one site
+	 * @param q
+	 *            the integer representing the other site
+	 * @return <tt>true</tt> if the two sites <tt>p</tt> and <tt>q</tt> are in
+	 *         the same component; <tt>false</tt> otherwise
+	 * @throws IndexOutOfBoundsException
+	 *             unless both <tt>0 &le; p &lt; N</tt> and
+	 *             <tt>0 &le; q &lt; N</tt>
+	 */
+	public boolean connected(int p, int q) {
+		return find(p) == find(q);
+	}
+
+	/**
+	 * Merges the component containing site <tt>p</tt> with the the component
+	 * containing site <tt>q</tt>. The root of lower rank is linked to the
+	 * root of higher rank
+	 *
+	 * @param p
+	 *            the integer representing one site
+	 * @param q
+	 *            the integer representing the other site
+	 * @return <tt>true</tt> if two components were merged; <tt>false</tt> if
+	 *         the sites were already in the same component
+	 * @throws IndexOutOfBoundsException
+	 *             unless both <tt>0 &le; p &lt; N</tt> and
+	 *             <tt>0 &le; q &lt; N</tt>
+	 */
+	public boolean union(int p, int q) {
+		int rootP = find(p);
+		int rootQ = find(q);
+		if (rootP == rootQ)
+			return false;
+
+		if (rank[rootP] < rank[rootQ]) {
+			parent[rootP] = rootQ;
+			size[rootQ] += size[rootP];
+		} else {
+			parent[rootQ] = rootP;
+			size[rootP] += size[rootQ];
+			if (rank[rootP] == rank[rootQ]) {
+				rank[rootP]++;
+			}
+		}
+		count--;
+		return true;
+	}
+
+	/**
+	 *
+	 * @param p
+	 *            the integer representing one site
+	 * @return number of sites in the component containing site <tt>p</tt>
+	 */
+	public int size(int p) {
+		return size[find(p)];
+	}
+
+	/**
+	 *
+	 * @return number of calls of find(), including those made by union() and
+	 *         connected()
+	 */
+	public long getFindCalls() {
+		return findCalls;
+	}
+
+	/**
+	 *
+	 * @return total number of links followed by all calls of find()
+	 */
+	public long getFindSteps() {
+		return findSteps;
+	}
+
+	/**
+	 *
+	 * @return the longest path from a site to its root followed by find()
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+}
@@ -0,0 +1,150 @@
+package controllers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         JUnit test case, which tests BatchAnalyzer class. Small images with
+ *         a known number of squares are written to a temporary directory and
+ *         the lines written for them are checked, both in CSV and in JSON
+ */
+public class BatchAnalyzerTest {
+
+	// number of squares drawn on each image, in order of the file names
+	private static final int[] SQUARES = { 2, 0, 3 };
+	private Path directory;
+	private List<Path> files;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("batch");
+		for (int i = 0; i < SQUARES.length; i++) {
+			BufferedImage image = new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB);
+			Graphics2D graphics = image.createGraphics();
+			graphics.setColor(Color.WHITE);
+			for (int square = 0; square < SQUARES[i]; square++) {
+				graphics.fillRect(2 + square * 12, 5, 8, 8);
+			}
+			graphics.dispose();
+			ImageIO.write(image, "png", directory.resolve("image" + i + ".png").toFile());
+		}
+		// files of other types are not processed
+		Files.write(directory.resolve("notes.txt"), new byte[] { 1, 2, 3 });
+		files = BatchAnalyzer.findImages(directory.toString());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (File file : directory.toFile().listFiles()) {
+			file.delete();
+		}
+		Files.delete(directory);
+	}
+
+	// RIGHT - images are found in the directory, in order of their names
+	@Test
+	public void testFindImages() {
+		assertEquals(files.size(), SQUARES.length);
+		for (int i = 0; i < SQUARES.length; i++) {
+			assertEquals(files.get(i).getFileName().toString(), "image" + i + ".png");
+		}
+	}
+
+	/*
+	 * RIGHT - header is followed by a line for each object, or an empty line
+	 * for an image without objects. Each line has all of the columns and the
+	 * objects count of its image
+	 */
+	@Test
+	public void testCsv() throws IOException, InterruptedException {
+		String[] lines = process(false);
+		int expected = 1;
+		for (int squares : SQUARES) {
+			expected += Math.max(1, squares);
+		}
+		assertEquals(lines.length, expected);
+		String[] header = lines[0].split(",", -1);
+		assertEquals(header.length, 17);
+		assertEquals(header[0], "file");
+		for (int i = 0; i < SQUARES.length; i++) {
+			int found = 0;
+			for (int line = 1; line < lines.length; line++) {
+				String[] columns = lines[line].split(",", -1);
+				assertEquals(columns.length, header.length);
+				if (columns[0].equals(files.get(i).toString())) {
+					assertEquals(columns[1], "40");
+					assertEquals(columns[2], "20");
+					assertEquals(columns[4], String.valueOf(SQUARES[i]));
+					if (SQUARES[i] > 0) {
+						// each square is 8 x 8 pixels
+						assertEquals(columns[10], "64");
+					}
+					found++;
+				}
+			}
+			assertEquals(found, Math.max(1, SQUARES[i]));
+		}
+	}
+
+	// RIGHT - one JSON object is written for each image, with its objects
+	@Test
+	public void testJson() throws IOException, InterruptedException {
+		String[] lines = process(true);
+		assertEquals(lines.length, SQUARES.length);
+		for (int i = 0; i < SQUARES.length; i++) {
+			String image = null;
+			for (String line : lines) {
+				if (line.startsWith("{\"file\":\"" + BatchAnalyzer.escape(files.get(i).toString()) + "\"")) {
+					image = line;
+				}
+			}
+			assertTrue(image != null);
+			assertTrue(image.endsWith("]}"));
+			assertTrue(image.contains("\"width\":40,\"height\":20,"));
+			assertTrue(image.contains("\"count\":" + SQUARES[i] + ","));
+			assertEquals(image.split("\\{\"minX\":", -1).length - 1, SQUARES[i]);
+		}
+	}
+
+	// RIGHT - quotes, backslashes and control characters are escaped
+	@Test
+	public void testEscape() {
+		assertEquals(BatchAnalyzer.escape("plain.jpg"), "plain.jpg");
+		assertEquals(BatchAnalyzer.escape("a\"b\\c"), "a\\\"b\\\\c");
+		assertEquals(BatchAnalyzer.escape("new\nline\ttab\u0001"), "new\\u000aline\\u0009tab\\u0001");
+	}
+
+	/**
+	 * processes the images of the directory with two threads
+	 *
+	 * @return lines written
+	 */
+	private String[] process(boolean json) throws IOException, InterruptedException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes, true, "UTF-8");
+		BatchAnalyzer analyzer = new BatchAnalyzer(128, 2, json, out);
+		analyzer.process(files);
+		out.flush();
+		assertEquals(analyzer.getProcessed(), SQUARES.length);
+		return bytes.toString("UTF-8").split(System.lineSeparator());
+	}
+}
@@ -0,0 +1,115 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.awt.Color;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.princeton.cs.introcs.Picture;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         JUnit test case, which tests all public methods from
+ *         AdaptiveThreshold class. Thresholds computed from summed-area tables
+ *         are checked against the ones computed from all pixels of each window
+ */
+public class AdaptiveThresholdTest {
+
+	// CROSS CHECKING - each method, windows reaching over the edges
+	@Test
+	public void testSameAsWindowStatistics() {
+		int width = 37;
+		int height = 23;
+		byte[] luminance = new byte[width * height];
+		Random random = new Random(7);
+		for (int i = 0; i < luminance.length; i++) {
+			luminance[i] = (byte) random.nextInt(256);
+		}
+		for (AdaptiveThreshold.Method method : AdaptiveThreshold.Method.values()) {
+			for (int window : new int[] { 1, 5, 15, 99 }) {
+				AdaptiveThreshold adaptive = new AdaptiveThreshold(method, window);
+				boolean[] background = adaptive.background(luminance, width, height);
+				for (int y = 0; y < height; y++) {
+					for (int x = 0; x < width; x++) {
+						double sum = 0;
+						double squares = 0;
+						int pixels = 0;
+						for (int j = Math.max(0, y - window / 2); j <= Math.min(height - 1, y + window / 2); j++) {
+							for (int i = Math.max(0, x - window / 2); i <= Math.min(width - 1, x + window / 2); i++) {
+								int lum = luminance[j * width + i] & 0xFF;
+								sum += lum;
+								squares += lum * lum;
+								pixels++;
+							}
+						}
+						double mean = sum / pixels;
+						double deviation = Math.sqrt(Math.max(0, squares / pixels - mean * mean));
+						double k = method.getDefaultK();
+						double threshold = method == AdaptiveThreshold.Method.MEAN ? mean + k
+								: method == AdaptiveThreshold.Method.NIBLACK ? mean + k * deviation
+										: mean * (1 + k * (deviation / AdaptiveThreshold.DYNAMIC_RANGE - 1));
+						int lum = luminance[y * width + x] & 0xFF;
+						// values too close to the threshold may be rounded
+						// either way
+						if (Math.abs(lum - threshold) > 1e-9) {
+							assertEquals(lum < threshold, background[y * width + x]);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// RIGHT - objects of an unevenly lit image are found with adaptive
+	// threshold, but not with any global one
+	@Test
+	public void testUnevenLighting() {
+		Picture picture = new Picture(240, 60);
+		for (int x = 0; x < 240; x++) {
+			for (int y = 0; y < 60; y++) {
+				int lum = x / 2; // background gets brighter to the right
+				// 8 squares, each 40 levels brighter than its surroundings
+				if (x % 30 >= 10 && x % 30 < 20 && y >= 25 && y < 35) {
+					lum += 40;
+				}
+				picture.set(x, y, new Color(lum, lum, lum));
+			}
+		}
+		ComponentImage image = new ComponentImage(picture);
+		ThresholdSweep sweep = image.sweepThresholds();
+		for (int threshold = 0; threshold < 256; threshold++) {
+			assertNotEquals(sweep.countComponents(threshold), 8);
+		}
+		image.setAdaptiveThreshold(new AdaptiveThreshold(AdaptiveThreshold.Method.MEAN, 31));
+		image.binaryComponentImage();
+		assertEquals(image.countComponents(), 8);
+		for (int[] properties : image.getObjectsProperties()) {
+			assertEquals(properties[4], 100);
+		}
+	}
+
+	// RIGHT - getters, window rounded up to an odd number
+	@Test
+	public void testGetters() {
+		AdaptiveThreshold adaptive = new AdaptiveThreshold(AdaptiveThreshold.Method.SAUVOLA, 30, 0.3);
+		assertEquals(adaptive.getMethod(), AdaptiveThreshold.Method.SAUVOLA);
+		assertEquals(adaptive.getWindow(), 31);
+		assertEquals(adaptive.getK(), 0.3, 0);
+	}
+
+	// boundary conditions: RANGE
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyWindow() {
+		new AdaptiveThreshold(AdaptiveThreshold.Method.MEAN, 0);
+	}
+
+	// boundary conditions: EXISTENCE
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoMethod() {
+		new AdaptiveThreshold(null, 15);
+	}
+}
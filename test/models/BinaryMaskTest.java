@@ -0,0 +1,113 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         JUnit test case, which tests all public methods from BinaryMask
+ *         class. Runs found word by word are checked against the pixels of
+ *         id array
+ */
+public class BinaryMaskTest {
+
+	// CROSS CHECKING - widths around the size of a word, sparse and dense
+	// rows
+	@Test
+	public void testSameAsLabels() {
+		Random random = new Random(3);
+		for (int width : new int[] { 1, 63, 64, 65, 130 }) {
+			for (double density : new double[] { 0.01, 0.5, 0.99 }) {
+				int height = 5;
+				int[] id = new int[width * height];
+				for (int i = 0; i < id.length; i++) {
+					id[i] = random.nextDouble() < density ? i : -1;
+				}
+				BinaryMask mask = BinaryMask.fromLabels(id, width, 1, height);
+				assertEquals(mask.getWordsPerRow(), (width + 63) / 64);
+				int foreground = 0;
+				for (int y = 0; y < height; y++) {
+					for (int x = 0; x < width; x++) {
+						boolean expected = y > 0 && id[y * width + x] != -1;
+						assertEquals(mask.get(x, y), expected);
+						if (expected) {
+							foreground++;
+						}
+						assertEquals(mask.nextSet(x, y), next(id, width, x, y, true));
+						assertEquals(mask.nextClear(x, y), next(id, width, x, y, false));
+					}
+				}
+				assertEquals(mask.count(), foreground);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return x of the first pixel of the row at x or after it, which is
+	 *         foreground or background, width if there is none
+	 */
+	private int next(int[] id, int width, int x, int y, boolean foreground) {
+		while (x < width && (y > 0 && id[y * width + x] != -1) != foreground) {
+			x++;
+		}
+		return x;
+	}
+
+	// CROSS CHECKING - runs cleared within a word and across words
+	@Test
+	public void testClear() {
+		Random random = new Random(7);
+		for (int width : new int[] { 1, 63, 64, 65, 200 }) {
+			int[] id = new int[width * 2];
+			for (int k = 0; k < 50; k++) {
+				int fromX = random.nextInt(width + 1);
+				int toX = fromX + random.nextInt(width - fromX + 1);
+				BinaryMask mask = BinaryMask.fromLabels(id, width, 0, 2);
+				mask.clear(fromX, toX, 1);
+				for (int x = 0; x < width; x++) {
+					assertEquals(mask.get(x, 0), true);
+					assertEquals(mask.get(x, 1), x < fromX || x >= toX);
+				}
+				assertEquals(mask.count(), 2 * width - (toX - fromX));
+			}
+		}
+	}
+
+	// RIGHT - labelling with the mask gives the same objects as without it
+	@Test
+	public void testLabelWithMask() {
+		ComponentImage image = new ComponentImage("images/smallStars.jpg");
+		image.setThresholdPixelValue(100);
+		image.labelComponents();
+		ComponentLabeler[] labelers = new ComponentLabeler[] { new FourConnectedLabeler(),
+				new RunLengthLabeler(Connectivity.FOUR) };
+		for (ComponentLabeler labeler : labelers) {
+			ComponentImage labelled = new ComponentImage("images/smallStars.jpg");
+			labelled.setThresholdPixelValue(100);
+			labelled.setLabeler(labeler);
+			labelled.labelComponents();
+			assertEquals(labelled.countComponents(), image.countComponents());
+		}
+	}
+
+	// boundary conditions: EXISTENCE - empty rows
+	@Test
+	public void testEmptyMask() {
+		BinaryMask mask = new BinaryMask(100, 2);
+		assertEquals(mask.nextSet(0, 1), 100);
+		assertEquals(mask.nextClear(99, 1), 99);
+		assertEquals(mask.nextSet(100, 0), 100);
+		assertEquals(mask.count(), 0);
+	}
+
+	// boundary conditions: RANGE
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeSize() {
+		new BinaryMask(-1, 10);
+	}
+}
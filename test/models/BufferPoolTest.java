@@ -0,0 +1,99 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         JUnit test case, which tests all public methods from BufferPool
+ *         class and the images sharing the pool
+ */
+public class BufferPoolTest {
+
+	private BufferPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		pool = new BufferPool(1000);
+	}
+
+	// RIGHT - released array is leased again, if it is long enough, but not
+	// much longer than needed
+	@Test
+	public void testLease() {
+		int[] buffer = pool.lease(100);
+		assertEquals(buffer.length, 100);
+		pool.release(buffer);
+		assertEquals(pool.getBytes(), 400);
+		assertNotSame(pool.lease(101), buffer);
+		assertNotSame(pool.lease(49), buffer);
+		assertSame(pool.lease(60), buffer);
+		assertEquals(pool.getBytes(), 0);
+		assertEquals(pool.getHits(), 1);
+		assertEquals(pool.getMisses(), 3);
+	}
+
+	// RIGHT - the shortest array, which fits, is leased
+	@Test
+	public void testBestFit() {
+		int[] large = new int[80];
+		int[] small = new int[60];
+		pool.release(large);
+		pool.release(small);
+		assertSame(pool.lease(50), small);
+		assertSame(pool.lease(50), large);
+	}
+
+	// boundary conditions: RANGE - the oldest arrays are dropped over the
+	// limit, arrays over the limit are never kept
+	@Test
+	public void testLimit() {
+		int[] first = new int[150];
+		int[] second = new int[150];
+		pool.release(first);
+		pool.release(second);
+		assertEquals(pool.getBytes(), 600);
+		pool.release(new int[300]);
+		assertEquals(pool.getBytes(), 600);
+		pool.release(new int[100]);
+		assertEquals(pool.getBytes(), 1000);
+		assertSame(pool.lease(150), second);
+		assertNotSame(pool.lease(150), first);
+	}
+
+	// CROSS CHECKING - labels of a released image are reused by the next one,
+	// which gives the same objects as with a new array
+	@Test
+	public void testReleasedImage() {
+		BufferPool shared = new BufferPool(1 << 24);
+		ComponentImage first = new ComponentImage("images/sky.jpg");
+		first.setBufferPool(shared);
+		first.setThresholdPixelValue(100);
+		first.labelComponents();
+		int objects = first.countComponents();
+		first.release();
+		assertEquals(first.getComponentAt(0, 0), -1);
+		int hits = shared.getHits();
+		ComponentImage second = new ComponentImage("images/sky.jpg");
+		second.setBufferPool(shared);
+		second.setThresholdPixelValue(100);
+		second.labelComponents();
+		// pixels read for the luminance and the labels
+		assertEquals(shared.getHits(), hits + 2);
+		assertEquals(second.countComponents(), objects);
+		// released image can be labelled again
+		first.labelComponents();
+		assertEquals(first.countComponents(), objects);
+	}
+
+	// boundary conditions: RANGE
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeLength() {
+		pool.lease(-1);
+	}
+}
@@ -4,15 +4,18 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.awt.Color;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import edu.princeton.cs.introcs.Picture;
 import edu.princeton.cs.introcs.Stopwatch;
 
 /**
@@ -35,6 +38,7 @@ public class ComponentImageTest {
 	private ComponentImage checkers8by8;
 	private ComponentImage sky;
 	private ComponentImage smallAndLarge;
+	private ComponentImage spiral;
 	private int dimensions;
 	private Set<Color> colors;
 	private Color black, white, green, red;
@@ -48,6 +52,7 @@ public class ComponentImageTest {
 		checkers8by8 = new ComponentImage("images/checkers8by8.jpg");
 		sky = new ComponentImage("images/sky.jpg");
 		smallAndLarge = new ComponentImage("images/smallAndLarge.jpg");
+		spiral = new ComponentImage("images/spiral.jpg");
 		colors = new HashSet<Color>();
 		black = new Color(0, 0, 0);
 		white = new Color(255, 255, 255);
@@ -64,6 +69,7 @@ public class ComponentImageTest {
 		checkers8by8 = null;
 		sky = null;
 		smallAndLarge = null;
+		spiral = null;
 		colors = null;
 		black = null;
 		white = null;
@@ -116,9 +122,11 @@ public class ComponentImageTest {
 		assertNotEquals(checkers8by8.countComponents(), 31);
 		assertNotEquals(checkers8by8.countComponents(), 1);
 		
+		// the loaded picture is labelled again, not the binarised one, and
+		// its only pure white pixel reaches the luminance of 255
 		checkers8by8.setThresholdPixelValue(255);
 		checkers8by8.binaryComponentImage();
-		assertEquals(checkers8by8.countComponents(), 0);
+		assertEquals(checkers8by8.countComponents(), 1);
 		assertNotEquals(checkers8by8.countComponents(), 32);
 		
 		checkers8by8 = new ComponentImage("images/checkers8by8.jpg");
@@ -160,6 +168,112 @@ public class ComponentImageTest {
 		assertTrue(time < 2.0);
 	}
 
+	// PERFORMANCE characteristics. Labelling of the spiral, which joins
+	// long chains of sites, should stay near-linear: union-find trees must not
+	// grow deep and find() should follow only a few links per call on average
+	@Test
+	public void testUnionFindDepth() {
+		spiral.setThresholdPixelValue(128);
+		spiral.binaryComponentImage();
+		UnionFind unionFind = spiral.getUnionFind();
+		assertTrue(unionFind.getMaxDepth() <= 32);
+		assertTrue(unionFind.getFindSteps() < 4L * unionFind.getFindCalls());
+	}
+
+	// RIGHT - squares of the checkerboard touch only at the corners, so they
+	// are distinct objects with 4-connectivity and one object with
+	// 8-connectivity, regardless of the labeler
+	@Test
+	public void testConnectivity() {
+		checkers8by8.setThresholdPixelValue(128);
+		checkers8by8.binaryComponentImage();
+		assertEquals(checkers8by8.getLabeler().getConnectivity(), Connectivity.FOUR);
+		assertEquals(checkers8by8.countComponents(), 32);
+
+		ComponentLabeler[] labelers = new ComponentLabeler[] { new EightConnectedLabeler(),
+				new RunLengthLabeler(Connectivity.EIGHT), new ParallelLabeler(new EightConnectedLabeler(), 3),
+				new BlockLabeler() };
+		for (ComponentLabeler labeler : labelers) {
+			checkers8by8 = new ComponentImage("images/checkers8by8.jpg");
+			checkers8by8.setLabeler(labeler);
+			checkers8by8.setThresholdPixelValue(128);
+			checkers8by8.binaryComponentImage();
+			assertEquals(checkers8by8.getLabeler().getConnectivity(), Connectivity.EIGHT);
+			assertEquals(checkers8by8.countComponents(), 1);
+		}
+	}
+
+	/*
+	 * CROSS CHECKING: run-length labelling has to find the same objects as
+	 * per-pixel labelling. Number of objects and the boxes drawn around them
+	 * are compared
+	 */
+	@Test
+	public void testRunLengthLabelling() {
+		ComponentImage runLength = new ComponentImage("images/sky.jpg");
+		runLength.setLabeler(new RunLengthLabeler(Connectivity.FOUR));
+		assertTrue(runLength.getLabeler() instanceof RunLengthLabeler);
+		assertTrue(sky.getLabeler() instanceof FourConnectedLabeler);
+		sky.setThresholdPixelValue(100);
+		runLength.setThresholdPixelValue(100);
+		sky.binaryComponentImage();
+		runLength.binaryComponentImage();
+		assertEquals(sky.countComponents(), runLength.countComponents());
+		sky.highlightComponentImage();
+		runLength.highlightComponentImage();
+		assertEquals(sky.getPicture(), runLength.getPicture());
+	}
+
+	/*
+	 * CROSS CHECKING: labelling in parallel strips has to find the same
+	 * objects as sequential labelling, also when there are more strips than
+	 * rows in the image
+	 */
+	@Test
+	public void testParallelLabelling() {
+		ComponentImage parallel = new ComponentImage("images/sky.jpg");
+		ParallelLabeler labeler = new ParallelLabeler(new FourConnectedLabeler(), 4);
+		parallel.setLabeler(labeler);
+		assertEquals(parallel.getLabeler().getConnectivity(), Connectivity.FOUR);
+		sky.setThresholdPixelValue(100);
+		parallel.setThresholdPixelValue(100);
+		sky.binaryComponentImage();
+		parallel.binaryComponentImage();
+		assertEquals(sky.countComponents(), parallel.countComponents());
+		sky.highlightComponentImage();
+		parallel.highlightComponentImage();
+		assertEquals(sky.getPicture(), parallel.getPicture());
+
+		labeler.shutdown();
+
+		labeler = new ParallelLabeler(new FourConnectedLabeler(), 16);
+		checkers8by8.setLabeler(labeler);
+		checkers8by8.setThresholdPixelValue(128);
+		checkers8by8.binaryComponentImage();
+		assertEquals(checkers8by8.countComponents(), 32);
+		labeler.shutdown();
+	}
+
+	/*
+	 * CROSS CHECKING: labelling 2x2 blocks has to find the same objects as
+	 * labelling single pixels with 8-connectivity. Image with odd width and
+	 * height is used, so that there are incomplete blocks on the edges
+	 */
+	@Test
+	public void testBlockLabelling() {
+		ComponentImage blocks = new ComponentImage("images/sky.jpg");
+		blocks.setLabeler(new BlockLabeler());
+		sky.setLabeler(new EightConnectedLabeler());
+		sky.setThresholdPixelValue(100);
+		blocks.setThresholdPixelValue(100);
+		sky.binaryComponentImage();
+		blocks.binaryComponentImage();
+		assertEquals(sky.countComponents(), blocks.countComponents());
+		sky.highlightComponentImage();
+		blocks.highlightComponentImage();
+		assertEquals(sky.getPicture(), blocks.getPicture());
+	}
+
 	// RIGHT
 	// Note: testing binarising image with different threshold values is
 	// being tested in testNumberOfObjects
@@ -191,6 +305,22 @@ public class ComponentImageTest {
 		}
 	}
 
+	// RIGHT - binarised picture written back from the raster contains only
+	// black and white pixels
+	@Test
+	public void testBinaryComponentImageColours() {
+		sky.setThresholdPixelValue(128);
+		sky.binaryComponentImage();
+		for (int x = 0; x < sky.getPicture().width(); x++) {
+			for (int y = 0; y < sky.getPicture().height(); y++) {
+				colors.add(sky.getPicture().get(x, y));
+			}
+		}
+		assertEquals(colors.size(), 2);
+		assertTrue(colors.contains(black));
+		assertTrue(colors.contains(white));
+	}
+
 	// RIGHT - for simplicity white background image is used:
 	// boundary pixels should be set to red
 	@Test
@@ -276,4 +406,263 @@ public class ComponentImageTest {
 		checkers8by8.binaryComponentImage();
 		assertEquals(checkers8by8.countComponents(), 1);
 	}
+
+	// CROSS CHECKING - counts of the threshold sweep are the same as the
+	// counts of the image binarised with each of the thresholds
+	@Test
+	public void testSweepThresholds() {
+		ThresholdSweep sweep = sky.sweepThresholds();
+		for (int threshold : new int[] { 0, 50, 100, 128, 200, 255 }) {
+			ComponentImage image = new ComponentImage("images/sky.jpg");
+			image.setThresholdPixelValue(threshold);
+			image.binaryComponentImage();
+			assertEquals(sweep.countComponents(threshold), image.countComponents());
+			int foreground = 0;
+			int largest = 0;
+			for (int[] properties : image.getObjectsProperties()) {
+				foreground += properties[4];
+				largest = Math.max(largest, properties[4]);
+			}
+			assertEquals(sweep.getForeground(threshold), foreground);
+			assertEquals(sweep.getLargest(threshold), largest);
+		}
+		assertEquals(sweep.countComponents(0), 1);
+		assertEquals(sweep.getForeground(0), sky.getPicture().width() * sky.getPicture().height());
+
+		checkers8by8.setLabeler(new EightConnectedLabeler());
+		sweep = checkers8by8.sweepThresholds();
+		checkers8by8.setThresholdPixelValue(sweep.getMostStableThreshold());
+		checkers8by8.binaryComponentImage();
+		assertEquals(sweep.countComponents(sweep.getMostStableThreshold()), checkers8by8.countComponents());
+	}
+
+	// CROSS CHECKING - Otsu's threshold gives the lowest sum of variances
+	// within the background and within the objects, found by brute force
+	@Test
+	public void testAutomaticThreshold() {
+		Histogram histogram = sky.getHistogram();
+		assertEquals(histogram.total(), sky.getPicture().width() * sky.getPicture().height());
+		int best = 0;
+		double bestVariance = Double.MAX_VALUE;
+		for (int threshold = 1; threshold < 256; threshold++) {
+			double variance = 0;
+			for (int from : new int[] { 0, threshold }) {
+				int to = from == 0 ? threshold : 256;
+				double pixels = 0, sum = 0, squares = 0;
+				for (int level = from; level < to; level++) {
+					pixels += histogram.count(level);
+					sum += (double) level * histogram.count(level);
+					squares += (double) level * level * histogram.count(level);
+				}
+				if (pixels > 0) {
+					variance += squares - sum * sum / pixels;
+				}
+			}
+			if (variance < bestVariance - 1e-6) {
+				bestVariance = variance;
+				best = threshold;
+			}
+		}
+		assertEquals(histogram.otsuThreshold(), best);
+
+		sky.setAutomaticThreshold(true);
+		sky.setThresholdPixelValue(0);
+		sky.binaryComponentImage();
+		assertTrue(sky.isAutomaticThreshold());
+		assertEquals(sky.getThresholdPixelValue(), best, 0);
+
+		checkers8by8.setAutomaticThreshold(true);
+		checkers8by8.binaryComponentImage();
+		assertEquals(checkers8by8.countComponents(), 32);
+
+		// all pixels of the same luminance are objects
+		whiteBackground.setAutomaticThreshold(true);
+		whiteBackground.binaryComponentImage();
+		assertEquals(whiteBackground.getThresholdPixelValue(), 1, 0);
+	}
+
+	// RIGHT - views are rendered from the labels, without changing the
+	// loaded picture, so they can be switched in any order
+	@Test
+	public void testViewsDoNotChangePicture() {
+		Color original = smallAndLarge.getPicture().get(1, 1);
+		smallAndLarge.setThresholdPixelValue(128);
+		smallAndLarge.binaryComponentImage();
+		smallAndLarge.getSmallestAndLargest();
+		assertEquals(smallAndLarge.getPicture().get(1, 1), red);
+		smallAndLarge.colourComponentImage();
+		Color coloured = smallAndLarge.getPicture().get(1, 1);
+		assertNotEquals(coloured, red);
+		smallAndLarge.renderBinaryImage();
+		assertEquals(smallAndLarge.getPicture().get(1, 1), white);
+		smallAndLarge.highlightComponentImage();
+		assertEquals(smallAndLarge.getPicture().get(0, 0), Color.RED);
+		smallAndLarge.colourComponentImage();
+		assertEquals(smallAndLarge.getPicture().get(1, 1), coloured);
+		assertEquals(smallAndLarge.getOriginal().get(1, 1), original);
+
+		// labelled again with another threshold, without loading the image
+		smallAndLarge.setThresholdPixelValue(0);
+		smallAndLarge.binaryComponentImage();
+		assertEquals(smallAndLarge.countComponents(), 1);
+		assertEquals(smallAndLarge.getOriginal().get(1, 1), original);
+	}
+
+	// RIGHT - each view is a picture of its own, so a view being shown is
+	// never changed by the views rendered after it
+	@Test
+	public void testViewsAreSeparatePictures() {
+		smallAndLarge.setThresholdPixelValue(128);
+		Picture binary = smallAndLarge.binaryComponentImage();
+		Picture smallestAndLargest = smallAndLarge.getSmallestAndLargest();
+		assertTrue(binary != smallestAndLargest);
+		assertEquals(binary.get(1, 1), white);
+		Picture highlighted = smallAndLarge.highlightComponentImage(binary);
+		assertEquals(highlighted.get(1, 1), white);
+		assertEquals(highlighted.get(0, 0), Color.RED);
+		assertEquals(binary.get(0, 0), smallAndLarge.renderBinaryImage().get(0, 0));
+		assertEquals(smallestAndLargest.get(1, 1), red);
+	}
+
+	// boundary conditions: RANGE - view of another image
+	@Test(expected = IllegalArgumentException.class)
+	public void testHighlightOtherView() {
+		sky.setThresholdPixelValue(128);
+		sky.binaryComponentImage();
+		sky.highlightComponentImage(new Picture(10, 10));
+	}
+
+	// RIGHT - stages of labelling are reported in order and labelling
+	// stopped by the listener can be run again
+	@Test
+	public void testProgressListener() {
+		final StringBuilder stages = new StringBuilder();
+		smallAndLarge.setThresholdPixelValue(128);
+		smallAndLarge.labelComponents(new ComponentImage.ProgressListener() {
+
+			@Override
+			public void stageStarted(String stage, int percent) {
+				stages.append(stage).append(' ').append(percent).append(',');
+			}
+
+		});
+		assertEquals(stages.toString(), "threshold 0,label 30,compact 70,statistics 85,");
+		int count = smallAndLarge.countComponents();
+		try {
+			smallAndLarge.labelComponents(new ComponentImage.ProgressListener() {
+
+				@Override
+				public void stageStarted(String stage, int percent) {
+					if (percent > 0) {
+						throw new CancellationException();
+					}
+				}
+
+			});
+			fail();
+		} catch (CancellationException e) {
+			// RIGHT - labelling stopped after the first stage
+		}
+		smallAndLarge.labelComponents();
+		assertEquals(smallAndLarge.countComponents(), count);
+	}
+
+	// RIGHT - proxy fits the given size and, when it is not smaller than the
+	// image, has the same objects at each threshold
+	@Test
+	public void testCreateProxy() {
+		ComponentImage proxy = sky.createProxy(100, 50);
+		assertTrue(proxy.getPicture().width() <= 100);
+		assertTrue(proxy.getPicture().height() <= 50);
+		int factor = (sky.getPicture().width() + proxy.getPicture().width() - 1) / proxy.getPicture().width();
+		assertEquals(proxy.getPicture().width(), (sky.getPicture().width() + factor - 1) / factor);
+
+		// CROSS CHECKING - copy of the same size
+		ComponentImage copy = spiral.createProxy(spiral.getPicture().width(), spiral.getPicture().height());
+		assertEquals(copy.getPicture().width(), spiral.getPicture().width());
+		ThresholdSweep expected = spiral.sweepThresholds();
+		ThresholdSweep actual = copy.sweepThresholds();
+		for (int threshold = 0; threshold < ThresholdSweep.THRESHOLDS; threshold++) {
+			assertEquals(actual.countComponents(threshold), expected.countComponents(threshold));
+		}
+	}
+
+	// CROSS CHECKING - preview is the same as the binarised image
+	@Test
+	public void testRenderThreshold() {
+		for (int threshold : new int[] { 0, 50, 128, 255 }) {
+			sky.setThresholdPixelValue(threshold);
+			Picture binary = new Picture(sky.binaryComponentImage());
+			Picture preview = sky.renderThreshold(threshold);
+			for (int x = 0; x < binary.width(); x++) {
+				for (int y = 0; y < binary.height(); y++) {
+					assertEquals(preview.get(x, y), binary.get(x, y));
+				}
+			}
+		}
+	}
+
+	// boundary conditions: RANGE
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyProxy() {
+		sky.createProxy(0, 10);
+	}
+
+	// CROSS CHECKING - objects kept with area limits are the objects of the
+	// image labelled without them, which fit the limits, in the same order.
+	// Dropped objects are background in the views
+	@Test
+	public void testAreaLimits() {
+		for (ComponentLabeler labeler : new ComponentLabeler[] { new FourConnectedLabeler(),
+				new EightConnectedLabeler(), new RunLengthLabeler(Connectivity.FOUR) }) {
+			ComponentImage filtered = new ComponentImage("images/sky.jpg");
+			filtered.setThresholdPixelValue(100);
+			filtered.setLabeler(labeler);
+			filtered.labelComponents();
+			RegionFeatures unfiltered = filtered.getRegionFeatures();
+			filtered.setMinimumArea(4);
+			filtered.setMaximumArea(500);
+			filtered.labelComponents();
+			RegionFeatures kept = filtered.getRegionFeatures();
+			int k = 0;
+			int pixels = 0;
+			for (int i = 0; i < unfiltered.size(); i++) {
+				if (unfiltered.getArea(i) >= 4 && unfiltered.getArea(i) <= 500) {
+					assertEquals(kept.getArea(k), unfiltered.getArea(i));
+					assertEquals(kept.getMinX(k), unfiltered.getMinX(i));
+					assertEquals(kept.getMinY(k), unfiltered.getMinY(i));
+					pixels += unfiltered.getArea(i);
+					k++;
+				}
+			}
+			assertEquals(kept.size(), k);
+			assertEquals(filtered.countComponents(), k);
+			assertTrue(k < unfiltered.size());
+			Picture binary = filtered.renderBinaryImage();
+			int white = 0;
+			for (int x = 0; x < binary.width(); x++) {
+				for (int y = 0; y < binary.height(); y++) {
+					if (binary.get(x, y).equals(Color.WHITE)) {
+						white++;
+					}
+				}
+			}
+			assertEquals(white, pixels);
+		}
+	}
+
+	// boundary conditions: RANGE - no objects fit the limits, negative limits
+	// are ignored
+	@Test
+	public void testNoObjectsWithinAreaLimits() {
+		largeSquare.setThresholdPixelValue(128);
+		largeSquare.setMinimumArea(-5);
+		largeSquare.setMaximumArea(-5);
+		assertEquals(largeSquare.getMinimumArea(), 0);
+		assertEquals(largeSquare.getMaximumArea(), Integer.MAX_VALUE);
+		largeSquare.setMaximumArea(10);
+		largeSquare.labelComponents();
+		assertEquals(largeSquare.countComponents(), 0);
+		assertEquals(largeSquare.getObjectsProperties().length, 0);
+	}
 }
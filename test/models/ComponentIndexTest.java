@@ -0,0 +1,173 @@
+package models;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.princeton.cs.introcs.Picture;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         JUnit test case, which tests all public methods from ComponentIndex
+ *         class. Objects found with the index are checked against the ones
+ *         found by checking the bounding boxes of all objects
+ */
+public class ComponentIndexTest {
+
+	private RegionFeatures features;
+	private ComponentIndex index;
+	private Random random;
+
+	@Before
+	public void setUp() throws Exception {
+		// a few thousand small objects, some of them overlapping
+		random = new Random(5);
+		Picture picture = new Picture(400, 300);
+		for (int k = 0; k < 3000; k++) {
+			int x = random.nextInt(396);
+			int y = random.nextInt(296);
+			int w = 1 + random.nextInt(4);
+			int h = 1 + random.nextInt(4);
+			for (int i = x; i < x + w; i++) {
+				for (int j = y; j < y + h; j++) {
+					picture.set(i, j, Color.WHITE);
+				}
+			}
+		}
+		ComponentImage image = new ComponentImage(picture);
+		image.setThresholdPixelValue(128);
+		image.labelComponents();
+		features = image.getRegionFeatures();
+		index = image.getComponentIndex();
+	}
+
+	// CROSS CHECKING - rectangles and points
+	@Test
+	public void testSearch() {
+		assertEquals(index.size(), features.size());
+		for (int k = 0; k < 500; k++) {
+			int fromX = random.nextInt(420) - 10;
+			int fromY = random.nextInt(320) - 10;
+			int toX = fromX + (k % 2 == 0 ? 0 : random.nextInt(60));
+			int toY = fromY + (k % 2 == 0 ? 0 : random.nextInt(60));
+			int[] expected = new int[features.size()];
+			int count = 0;
+			for (int i = 0; i < features.size(); i++) {
+				if (features.getMinX(i) <= toX && features.getMaxX(i) >= fromX && features.getMinY(i) <= toY
+						&& features.getMaxY(i) >= fromY) {
+					expected[count++] = i;
+				}
+			}
+			int[] found = k % 2 == 0 ? index.search(fromX, fromY) : index.search(fromX, fromY, toX, toY);
+			Arrays.sort(found);
+			assertArrayEquals(found, Arrays.copyOf(expected, count));
+		}
+	}
+
+	// CROSS CHECKING - objects stored in an array are the objects returned,
+	// only the first ones, if the array is too short
+	@Test
+	public void testSearchIntoArray() {
+		int[] buffer = new int[4];
+		for (int k = 0; k < 500; k++) {
+			int fromX = random.nextInt(420) - 10;
+			int fromY = random.nextInt(320) - 10;
+			int toX = fromX + random.nextInt(60);
+			int toY = fromY + random.nextInt(60);
+			int[] expected = index.search(fromX, fromY, toX, toY);
+			int count = index.search(fromX, fromY, toX, toY, buffer);
+			assertEquals(count, expected.length);
+			assertArrayEquals(Arrays.copyOf(buffer, Math.min(count, buffer.length)),
+					Arrays.copyOf(expected, Math.min(count, buffer.length)));
+		}
+		assertEquals(index.search(-10, -10, -5, -5, buffer), 0);
+	}
+
+	// RIGHT - features and index of the labelling before are kept, those of
+	// the one before it are built again with the objects of the image
+	@Test
+	public void testLabelledAgain() {
+		ComponentImage image = new ComponentImage("images/sky.jpg");
+		image.setThresholdPixelValue(100);
+		image.labelComponents();
+		int[] found = image.getComponentIndex().search(0, 0, 200, 200);
+		int area = image.getRegionFeatures().getArea(0);
+		image.setThresholdPixelValue(50);
+		image.labelComponents();
+		RegionFeatures previousFeatures = image.getRegionFeatures();
+		ComponentIndex previousIndex = image.getComponentIndex();
+		int[] previousFound = previousIndex.search(0, 0, 200, 200);
+		image.setThresholdPixelValue(100);
+		image.labelComponents();
+		// labelling before is still there
+		assertArrayEquals(previousIndex.search(0, 0, 200, 200), previousFound);
+		assertEquals(previousFeatures.size(), previousIndex.size());
+		// same objects as the first time
+		assertArrayEquals(image.getComponentIndex().search(0, 0, 200, 200), found);
+		assertEquals(image.getRegionFeatures().getArea(0), area);
+		assertEquals(image.getComponentIndex().size(), image.countComponents());
+	}
+
+	// CROSS CHECKING - nearest objects are found in order of distance
+	@Test
+	public void testNearest() {
+		for (int k = 0; k < 200; k++) {
+			int x = random.nextInt(500) - 50;
+			int y = random.nextInt(400) - 50;
+			int[] found = index.nearest(x, y, 10);
+			assertEquals(found.length, 10);
+			long[] distances = new long[features.size()];
+			for (int i = 0; i < features.size(); i++) {
+				distances[i] = distance(i, x, y);
+			}
+			Arrays.sort(distances);
+			for (int i = 0; i < found.length; i++) {
+				assertEquals(distance(found[i], x, y), distances[i]);
+			}
+		}
+		assertEquals(index.nearest(0, 0, features.size() + 5).length, features.size());
+		assertEquals(index.nearest(0, 0, 0).length, 0);
+	}
+
+	private long distance(int i, int x, int y) {
+		long dx = Math.max(0, Math.max(features.getMinX(i) - x, x - features.getMaxX(i)));
+		long dy = Math.max(0, Math.max(features.getMinY(i) - y, y - features.getMaxY(i)));
+		return dx * dx + dy * dy;
+	}
+
+	// RIGHT - object at a pixel is one of the objects, whose boxes contain it
+	@Test
+	public void testComponentAt() {
+		ComponentImage image = new ComponentImage("images/smallAndLarge.jpg");
+		image.setThresholdPixelValue(128);
+		image.binaryComponentImage();
+		int object = image.getComponentAt(100, 100);
+		assertEquals(image.getRegionFeatures().getArea(object), 27209);
+		assertArrayEquals(image.getComponentIndex().search(100, 100), new int[] { object });
+		assertEquals(image.getComponentAt(60, 10), -1);
+		assertArrayEquals(image.getComponentIndex().nearest(60, 10, 1), new int[] { 0 });
+	}
+
+	// boundary conditions: EXISTENCE
+	@Test
+	public void testNoObjects() {
+		ComponentImage image = new ComponentImage(new Picture(10, 10));
+		image.setThresholdPixelValue(128);
+		image.labelComponents();
+		assertEquals(image.getComponentIndex().search(0, 0, 9, 9).length, 0);
+		assertEquals(image.getComponentIndex().nearest(5, 5, 3).length, 0);
+	}
+
+	// boundary conditions: RANGE
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeK() {
+		index.nearest(0, 0, -1);
+	}
+}
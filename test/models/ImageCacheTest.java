@@ -0,0 +1,121 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         JUnit test case, which tests all public methods from ImageCache
+ *         class. Images loaded from the cache are checked against the images
+ *         decoded by ComponentImage
+ */
+public class ImageCacheTest {
+
+	private ImageCache imageCache;
+
+	@Before
+	public void setUp() throws Exception {
+		imageCache = new ImageCache(64L << 20);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		imageCache = null;
+	}
+
+	// CROSS CHECKING - cached images give the same counts as decoded ones,
+	// also when binarised with a threshold, which is not a whole number
+	@Test
+	public void testSameCountsAsDecoded() {
+		for (double threshold : new double[] { 0, 50, 100, 127.5, 255 }) {
+			ComponentImage cached = imageCache.load("images/sky.jpg");
+			cached.setThresholdPixelValue(threshold);
+			cached.binaryComponentImage();
+			ComponentImage decoded = new ComponentImage("images/sky.jpg");
+			decoded.setThresholdPixelValue(threshold);
+			decoded.binaryComponentImage();
+			assertEquals(cached.countComponents(), decoded.countComponents());
+			assertEquals(cached.getFileLocation(), "images/sky.jpg");
+		}
+		assertEquals(imageCache.getMisses(), 1);
+		assertEquals(imageCache.getHits(), 4);
+		assertEquals(imageCache.size(), 1);
+	}
+
+	// RIGHT - binarising a loaded image does not change the cached one
+	@Test
+	public void testPicturesNotShared() {
+		ComponentImage first = imageCache.load("images/checkers8by8.jpg");
+		first.setThresholdPixelValue(128);
+		first.binaryComponentImage();
+		first.colourComponentImage();
+		ComponentImage second = imageCache.load("images/checkers8by8.jpg");
+		assertNotSame(first.getPicture(), second.getPicture());
+		second.setThresholdPixelValue(128);
+		second.binaryComponentImage();
+		assertEquals(second.countComponents(), 32);
+	}
+
+	// boundary conditions: RANGE - least recently used images are dropped
+	// once the limit is exceeded and images over the limit are not cached
+	@Test
+	public void testMemoryLimit() {
+		ComponentImage sky = imageCache.load("images/sky.jpg");
+		long skyBytes = 5L * sky.getPicture().width() * sky.getPicture().height();
+		ComponentImage checkers = imageCache.load("images/checkers8by8.jpg");
+		long checkersBytes = 5L * checkers.getPicture().width() * checkers.getPicture().height();
+		assertEquals(imageCache.getBytes(), skyBytes + checkersBytes);
+
+		imageCache = new ImageCache(Math.max(skyBytes, checkersBytes));
+		imageCache.load("images/sky.jpg");
+		imageCache.load("images/checkers8by8.jpg");
+		assertEquals(imageCache.size(), 1);
+		imageCache.load("images/checkers8by8.jpg");
+		imageCache.load("images/sky.jpg");
+		assertEquals(imageCache.getMisses(), 3);
+
+		imageCache = new ImageCache(0);
+		imageCache.load("images/sky.jpg");
+		assertEquals(imageCache.size(), 0);
+		assertEquals(imageCache.getBytes(), 0);
+	}
+
+	// RIGHT - image is decoded again, once its file is modified
+	@Test
+	public void testModifiedFile() throws Exception {
+		File file = File.createTempFile("imageCache", ".jpg");
+		try {
+			Files.copy(new File("images/checkers8by8.jpg").toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+			imageCache.load(file.getPath());
+			imageCache.load(file.getPath());
+			assertEquals(imageCache.getMisses(), 1);
+			Files.copy(new File("images/white.jpg").toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			file.setLastModified(file.lastModified() + 2000);
+			ComponentImage white = imageCache.load(file.getPath());
+			assertEquals(imageCache.getMisses(), 2);
+			white.setThresholdPixelValue(128);
+			white.binaryComponentImage();
+			assertEquals(white.countComponents(), 1);
+			imageCache.clear();
+			assertEquals(imageCache.size(), 0);
+		} finally {
+			file.delete();
+		}
+	}
+
+	// boundary conditions: RANGE
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeLimit() {
+		new ImageCache(-1);
+	}
+}
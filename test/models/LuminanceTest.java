@@ -0,0 +1,46 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+
+import org.junit.Test;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         JUnit test case, which checks that the 8-bit luminance looked up
+ *         from the tables gives the same threshold decisions as the double
+ *         precision formula for every one of 2^24 colours
+ */
+public class LuminanceTest {
+
+	// CROSS CHECKING - all of the colours, including those, whose luminance
+	// is a whole number computed in double precision just below it
+	@Test
+	public void testLum8AllColours() {
+		int[] row = new int[256];
+		byte[] plane = new byte[256];
+		for (int rg = 0; rg < 1 << 16; rg++) {
+			for (int b = 0; b < 256; b++) {
+				row[b] = 0xFF000000 | rg << 8 | b;
+			}
+			Luminance.lumRow(row, 0, plane, 0, 256);
+			for (int b = 0; b < 256; b++) {
+				int expected = Math.min(255, (int) Luminance.lum(row[b]));
+				assertEquals(expected, Luminance.lum8(row[b]));
+				assertEquals(expected, plane[b] & 0xFF);
+			}
+		}
+	}
+
+	// RIGHT - packed and Color versions agree
+	@Test
+	public void testPackedAndColor() {
+		assertEquals(Luminance.lum(new Color(1, 1, 1)), Luminance.lum(new Color(1, 1, 1).getRGB()), 0);
+		assertEquals(Luminance.lum8(new Color(1, 1, 1).getRGB()), 0);
+		assertEquals(Luminance.lum8(Color.WHITE.getRGB()), 255);
+		assertEquals(Luminance.lum8(Color.BLACK.getRGB()), 0);
+		assertEquals(Luminance.lum8(new Color(0, 72, 24).getRGB()), 44);
+	}
+}
@@ -0,0 +1,114 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         JUnit test case, which tests all public methods from PackedPixels
+ *         class. Pixels read and written through the data buffer of each
+ *         supported type, and through getRGB() and setRGB() for the other
+ *         types, are checked against getRGB() and setRGB() of the image
+ */
+public class PackedPixelsTest {
+
+	// types read from the data buffer, followed by types, which fall back to
+	// getRGB() and setRGB()
+	private static final int[] TYPES = { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+			BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_USHORT_565_RGB,
+			BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_INT_BGR };
+	private static final int WIDTH = 37;
+	private static final int HEIGHT = 23;
+	private Random random;
+
+	@Before
+	public void setUp() throws Exception {
+		random = new Random(11);
+	}
+
+	// CROSS CHECKING - pixels read are the ones given by getRGB()
+	@Test
+	public void testRead() {
+		for (int type : TYPES) {
+			BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+			image.setRGB(0, 0, WIDTH, HEIGHT, randomPixels(), 0, WIDTH);
+			int[] pixels = PackedPixels.read(image, null);
+			assertPixels(pixels, image);
+		}
+	}
+
+	// CROSS CHECKING - pixels written are the same as written by setRGB(),
+	// within the precision of the type, and are read back the same
+	@Test
+	public void testWrite() {
+		for (int type : TYPES) {
+			int[] pixels = randomPixels();
+			BufferedImage written = new BufferedImage(WIDTH, HEIGHT, type);
+			BufferedImage expected = new BufferedImage(WIDTH, HEIGHT, type);
+			PackedPixels.write(written, pixels);
+			expected.setRGB(0, 0, WIDTH, HEIGHT, pixels, 0, WIDTH);
+			for (int y = 0; y < HEIGHT; y++) {
+				for (int x = 0; x < WIDTH; x++) {
+					assertEquals(written.getRGB(x, y), expected.getRGB(x, y));
+				}
+			}
+			assertPixels(PackedPixels.read(written, null), expected);
+		}
+	}
+
+	// RIGHT - part of a larger image is not stored from the start of the
+	// buffer, so it is read and written with getRGB() and setRGB()
+	@Test
+	public void testSubimage() {
+		for (int type : TYPES) {
+			BufferedImage whole = new BufferedImage(WIDTH + 10, HEIGHT + 10, type);
+			whole.setRGB(0, 0, WIDTH + 10, HEIGHT + 10, new int[(WIDTH + 10) * (HEIGHT + 10)], 0, WIDTH + 10);
+			BufferedImage part = whole.getSubimage(5, 5, WIDTH, HEIGHT);
+			int outside = whole.getRGB(4, 4);
+			int[] pixels = randomPixels();
+			PackedPixels.write(part, pixels);
+			BufferedImage expected = new BufferedImage(WIDTH, HEIGHT, type);
+			expected.setRGB(0, 0, WIDTH, HEIGHT, pixels, 0, WIDTH);
+			assertPixels(PackedPixels.read(part, null), expected);
+			// pixels around the part are not changed
+			assertEquals(whole.getRGB(4, 4), outside);
+			assertEquals(whole.getRGB(WIDTH + 5, HEIGHT + 5), outside);
+		}
+	}
+
+	// RIGHT - array long enough is filled, a shorter one is replaced
+	@Test
+	public void testReuse() {
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+		int[] pixels = new int[WIDTH * HEIGHT + 5];
+		assertSame(PackedPixels.read(image, pixels), pixels);
+		assertEquals(PackedPixels.read(image, new int[WIDTH]).length, WIDTH * HEIGHT);
+	}
+
+	/**
+	 *
+	 * @return random ARGB values, with random alpha, of all pixels
+	 */
+	private int[] randomPixels() {
+		int[] pixels = new int[WIDTH * HEIGHT];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = random.nextInt();
+		}
+		return pixels;
+	}
+
+	private void assertPixels(int[] pixels, BufferedImage image) {
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				assertEquals(pixels[y * WIDTH + x], image.getRGB(x, y));
+			}
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.princeton.cs.introcs.Picture;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         JUnit test case, which tests all public methods from RegionFeatures
+ *         class. Features measured in one pass are checked against the ones
+ *         computed from the pixels of each object separately
+ */
+public class RegionFeaturesTest {
+
+	// CROSS CHECKING - random images, both connectivities
+	@Test
+	public void testSameAsObjectPixels() {
+		Random random = new Random(11);
+		for (Connectivity connectivity : Connectivity.values()) {
+			for (int k = 0; k < 10; k++) {
+				int width = 1 + random.nextInt(40);
+				int height = 1 + random.nextInt(40);
+				Picture picture = new Picture(width, height);
+				for (int x = 0; x < width; x++) {
+					for (int y = 0; y < height; y++) {
+						picture.set(x, y, random.nextInt(5) < 2 ? Color.BLACK : Color.WHITE);
+					}
+				}
+				ComponentImage image = new ComponentImage(picture);
+				image.setLabeler(connectivity == Connectivity.EIGHT ? new EightConnectedLabeler()
+						: new FourConnectedLabeler());
+				image.setThresholdPixelValue(128);
+				image.labelComponents();
+				RegionFeatures features = image.getRegionFeatures();
+				assertEquals(features.size(), image.countComponents());
+				int[] component = components(picture, width, height, connectivity);
+				for (int i = 0; i < features.size(); i++) {
+					checkObject(features, i, component, width, height, connectivity);
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return component index of each pixel, -1 for background. Objects are
+	 *         found with flood fill and numbered in order of their first
+	 *         pixel, as in ComponentImage
+	 */
+	private int[] components(Picture picture, int width, int height, Connectivity connectivity) {
+		int[] component = new int[width * height];
+		for (int site = 0; site < component.length; site++) {
+			component[site] = picture.get(site % width, site / width).equals(Color.WHITE) ? -2 : -1;
+		}
+		int components = 0;
+		for (int start = 0; start < component.length; start++) {
+			if (component[start] != -2) {
+				continue;
+			}
+			int[] stack = new int[component.length];
+			int size = 0;
+			stack[size++] = start;
+			component[start] = components;
+			while (size > 0) {
+				int site = stack[--size];
+				int x = site % width;
+				int y = site / width;
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						int nx = x + dx;
+						int ny = y + dy;
+						if ((dx != 0 && dy != 0 && connectivity == Connectivity.FOUR) || nx < 0 || nx >= width
+								|| ny < 0 || ny >= height) {
+							continue;
+						}
+						if (component[ny * width + nx] == -2) {
+							component[ny * width + nx] = components;
+							stack[size++] = ny * width + nx;
+						}
+					}
+				}
+			}
+			components++;
+		}
+		return component;
+	}
+
+	private void checkObject(RegionFeatures features, int i, int[] component, int width, int height,
+			Connectivity connectivity) {
+		int area = 0;
+		double sumX = 0;
+		double sumY = 0;
+		int minX = width;
+		int maxX = -1;
+		int minY = height;
+		int maxY = -1;
+		int perimeter = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (component[y * width + x] == i) {
+					area++;
+					sumX += x;
+					sumY += y;
+					minX = Math.min(minX, x);
+					maxX = Math.max(maxX, x);
+					minY = Math.min(minY, y);
+					maxY = Math.max(maxY, y);
+					int[][] neighbours = { { x - 1, y }, { x + 1, y }, { x, y - 1 }, { x, y + 1 } };
+					for (int[] n : neighbours) {
+						if (n[0] < 0 || n[0] >= width || n[1] < 0 || n[1] >= height
+								|| component[n[1] * width + n[0]] != i) {
+							perimeter++;
+						}
+					}
+				}
+			}
+		}
+		double centroidX = sumX / area;
+		double centroidY = sumY / area;
+		double xx = 0;
+		double yy = 0;
+		double xy = 0;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				if (component[y * width + x] == i) {
+					xx += (x - centroidX) * (x - centroidX);
+					yy += (y - centroidY) * (y - centroidY);
+					xy += (x - centroidX) * (y - centroidY);
+				}
+			}
+		}
+		assertEquals(features.getArea(i), area);
+		assertEquals(features.getMinX(i), minX);
+		assertEquals(features.getMaxX(i), maxX);
+		assertEquals(features.getMinY(i), minY);
+		assertEquals(features.getMaxY(i), maxY);
+		assertEquals(features.getCentroidX(i), centroidX, 1e-9);
+		assertEquals(features.getCentroidY(i), centroidY, 1e-9);
+		assertEquals(features.getMomentXX(i), xx / area, 1e-9);
+		assertEquals(features.getMomentYY(i), yy / area, 1e-9);
+		assertEquals(features.getMomentXY(i), xy / area, 1e-9);
+		assertEquals(features.getPerimeter(i), perimeter);
+		assertEquals(features.getExtent(i), (double) area / ((maxX - minX + 1) * (maxY - minY + 1)), 1e-12);
+		assertEquals(features.getEulerNumber(i), 1 - holes(component, i, width, height, connectivity));
+	}
+
+	/**
+	 * counts the holes of the object, ie parts of the rest of the image, which
+	 * do not reach the edge of the image. Pixels of the rest of the image are
+	 * adjacent with the other connectivity than the pixels of the object
+	 */
+	private int holes(int[] component, int i, int width, int height, Connectivity connectivity) {
+		boolean eight = connectivity == Connectivity.FOUR;
+		boolean[] visited = new boolean[width * height];
+		int holes = 0;
+		for (int start = 0; start < component.length; start++) {
+			if (component[start] == i || visited[start]) {
+				continue;
+			}
+			boolean edge = false;
+			int[] stack = new int[component.length];
+			int size = 0;
+			stack[size++] = start;
+			visited[start] = true;
+			while (size > 0) {
+				int site = stack[--size];
+				int x = site % width;
+				int y = site / width;
+				if (x == 0 || y == 0 || x == width - 1 || y == height - 1) {
+					edge = true;
+				}
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						int nx = x + dx;
+						int ny = y + dy;
+						if ((dx == 0 && dy == 0) || (!eight && dx != 0 && dy != 0) || nx < 0 || nx >= width
+								|| ny < 0 || ny >= height) {
+							continue;
+						}
+						int neighbour = ny * width + nx;
+						if (component[neighbour] != i && !visited[neighbour]) {
+							visited[neighbour] = true;
+							stack[size++] = neighbour;
+						}
+					}
+				}
+			}
+			if (!edge) {
+				holes++;
+			}
+		}
+		return holes;
+	}
+
+	// RIGHT - square ring with one hole, rotated bar
+	@Test
+	public void testShapes() {
+		Picture picture = new Picture(30, 30);
+		for (int x = 0; x < 30; x++) {
+			for (int y = 0; y < 30; y++) {
+				boolean ring = x >= 2 && x < 12 && y >= 2 && y < 12 && !(x >= 5 && x < 9 && y >= 5 && y < 9);
+				boolean bar = x >= 15 && x < 28 && y == x - 10;
+				picture.set(x, y, ring || bar ? Color.WHITE : Color.BLACK);
+			}
+		}
+		ComponentImage image = new ComponentImage(picture);
+		image.setLabeler(new EightConnectedLabeler());
+		image.setThresholdPixelValue(128);
+		image.labelComponents();
+		RegionFeatures features = image.getRegionFeatures();
+		assertEquals(features.size(), 2);
+		// ring: 10 x 10 square without 4 x 4 square
+		assertEquals(features.getArea(0), 84);
+		assertEquals(features.getEulerNumber(0), 0);
+		assertEquals(features.getPerimeter(0), 40 + 16);
+		assertEquals(features.getCentroidX(0), 6.5, 1e-12);
+		assertEquals(features.getExtent(0), 0.84, 1e-12);
+		assertEquals(features.getOrientation(0), 0, 1e-12);
+		// bar: diagonal line going down to the right
+		assertEquals(features.getArea(1), 13);
+		assertEquals(features.getEulerNumber(1), 1);
+		assertEquals(features.getOrientation(1), Math.PI / 4, 1e-12);
+		assertEquals(features.getPerimeter(1), 4 * 13);
+	}
+
+	// boundary conditions: EXISTENCE - no objects
+	@Test
+	public void testNoObjects() {
+		ComponentImage image = new ComponentImage(new Picture(10, 10));
+		image.setThresholdPixelValue(128);
+		image.labelComponents();
+		assertEquals(image.getRegionFeatures().size(), 0);
+	}
+}
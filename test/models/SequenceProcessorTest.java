@@ -0,0 +1,110 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Pawel Paszki
+ *
+ *         JUnit test case, which tests all public methods from
+ *         SequenceProcessor class. Frames are generated with squares moving
+ *         a few pixels from frame to frame
+ */
+public class SequenceProcessorTest {
+
+	private SequenceProcessor processor;
+
+	@Before
+	public void setUp() throws Exception {
+		processor = new SequenceProcessor(128);
+	}
+
+	/**
+	 *
+	 * @return black frame with white squares, side 10, at the given corners
+	 */
+	private BufferedImage frame(int width, int height, int... corners) {
+		BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics graphics = frame.getGraphics();
+		graphics.setColor(Color.WHITE);
+		for (int i = 0; i < corners.length; i += 2) {
+			graphics.fillRect(corners[i], corners[i + 1], 10, 10);
+		}
+		graphics.dispose();
+		return frame;
+	}
+
+	// RIGHT - moving objects keep their tracks, new ones start new tracks
+	@Test
+	public void testTracks() {
+		ComponentImage first = processor.process(frame(100, 60, 10, 20, 60, 25));
+		assertEquals(first.countComponents(), 2);
+		assertEquals(processor.getTrack(0), 0);
+		assertEquals(processor.getTrack(1), 1);
+
+		// both squares move, the second one above the first one, so the
+		// order of the objects changes
+		ComponentImage second = processor.process(frame(100, 60, 14, 24, 63, 21));
+		assertSame(second, first);
+		assertEquals(second.countComponents(), 2);
+		assertEquals(processor.getTrack(0), 1);
+		assertEquals(processor.getTrack(1), 0);
+
+		// a new square comes, the first one is gone
+		processor.process(frame(100, 60, 66, 23, 30, 45));
+		assertEquals(processor.getTrack(0), 1);
+		assertEquals(processor.getTrack(1), 2);
+		assertEquals(processor.getTracksCount(), 3);
+		assertEquals(processor.getFrames(), 3);
+	}
+
+	// RIGHT - each track is given to one object only, the largest one first
+	@Test
+	public void testSplitObject() {
+		BufferedImage whole = frame(100, 60);
+		Graphics graphics = whole.getGraphics();
+		graphics.setColor(Color.WHITE);
+		graphics.fillRect(10, 10, 40, 10);
+		graphics.dispose();
+		BufferedImage split = frame(100, 60);
+		graphics = split.getGraphics();
+		graphics.setColor(Color.WHITE);
+		graphics.fillRect(10, 10, 10, 10);
+		graphics.fillRect(30, 10, 20, 10);
+		graphics.dispose();
+		processor.process(whole);
+		processor.process(split);
+		// larger part keeps the track
+		assertEquals(processor.getTrack(1), 0);
+		assertEquals(processor.getTrack(0), 1);
+	}
+
+	// boundary conditions: RANGE - frames of another size are labelled by a
+	// new image with the same settings, tracks start again
+	@Test
+	public void testFrameSizeChange() {
+		ComponentImage small = processor.process(frame(50, 50, 10, 10));
+		small.setLabeler(new EightConnectedLabeler());
+		ComponentImage large = processor.process(frame(80, 50, 10, 10));
+		assertNotSame(large, small);
+		assertEquals(large.getThresholdPixelValue(), 128, 0);
+		assertEquals(large.getLabeler().getConnectivity(), Connectivity.EIGHT);
+		assertNotEquals(processor.getTrack(0), 0);
+		assertEquals(large.getPicture().width(), 80);
+	}
+
+	// boundary conditions: EXISTENCE
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testNoFrames() {
+		processor.getTrack(0);
+	}
+}
@@ -0,0 +1,252 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.event.IIOReadUpdateListener;
+import javax.imageio.stream.ImageInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Pawel Paszki
+ * 
+ *         JUnit test case, which tests StreamingLabeler class. Results of
+ *         labelling row by row are cross checked with ComponentImage, which
+ *         keeps the whole image in memory
+ */
+public class StreamingLabelerTest {
+
+	private List<int[]> properties;
+	private StreamingLabeler.Listener listener;
+	private int white, black;
+
+	@Before
+	public void setUp() throws Exception {
+		properties = new ArrayList<int[]>();
+		listener = new StreamingLabeler.Listener() {
+			@Override
+			public void componentFinished(int[] objectProperties) {
+				properties.add(objectProperties);
+			}
+		};
+		white = Color.WHITE.getRGB();
+		black = Color.BLACK.getRGB();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		properties = null;
+		listener = null;
+	}
+
+	/*
+	 * CROSS CHECKING: number of objects and total number of their pixels are
+	 * compared with ComponentImage
+	 */
+	@Test
+	public void testSameCountAsComponentImage() throws IOException {
+		ComponentImage sky = new ComponentImage("images/sky.jpg");
+		sky.setThresholdPixelValue(128);
+		sky.binaryComponentImage();
+		int count = StreamingLabeler.label("images/sky.jpg", 128, Connectivity.FOUR, listener);
+		assertEquals(count, sky.countComponents());
+		assertEquals(properties.size(), count);
+
+		int pixels = 0;
+		for (int[] objectProperties : properties) {
+			pixels += objectProperties[4];
+		}
+		int whitePixels = 0;
+		for (int x = 0; x < sky.getPicture().width(); x++) {
+			for (int y = 0; y < sky.getPicture().height(); y++) {
+				if (sky.getPicture().get(x, y).equals(Color.WHITE)) {
+					whitePixels++;
+				}
+			}
+		}
+		assertEquals(pixels, whitePixels);
+	}
+
+	/*
+	 * RIGHT - a tall image is decoded once from the top: the decoding is
+	 * started once and every row is handed over once, in order. CROSS
+	 * CHECKING: number of objects is the same as when the decoded image is
+	 * labelled row by row
+	 */
+	@Test
+	public void testTallImageDecodedOnce() throws IOException {
+		int width = 40;
+		int height = 1024;
+		BufferedImage tall = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+		Graphics2D graphics = tall.createGraphics();
+		graphics.setColor(Color.WHITE);
+		for (int y = 0; y < height; y += 16) {
+			graphics.fillRect((y / 16) % 3 * 12, y, 8, 8);
+		}
+		graphics.dispose();
+		File file = File.createTempFile("tall", ".jpg");
+		try {
+			ImageIO.write(tall, "jpg", file);
+			final int[] started = new int[1];
+			final int[] rows = new int[1];
+			final int[] outOfOrder = new int[1];
+			ImageInputStream input = ImageIO.createImageInputStream(file);
+			ImageReader reader = ImageIO.getImageReaders(input).next();
+			try {
+				reader.setInput(input, true, false);
+				reader.addIIOReadProgressListener(new IIOReadProgressListener() {
+					@Override
+					public void imageStarted(ImageReader source, int imageIndex) {
+						started[0]++;
+					}
+
+					@Override
+					public void sequenceStarted(ImageReader source, int minIndex) {
+					}
+
+					@Override
+					public void sequenceComplete(ImageReader source) {
+					}
+
+					@Override
+					public void imageProgress(ImageReader source, float percentageDone) {
+					}
+
+					@Override
+					public void imageComplete(ImageReader source) {
+					}
+
+					@Override
+					public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {
+					}
+
+					@Override
+					public void thumbnailProgress(ImageReader source, float percentageDone) {
+					}
+
+					@Override
+					public void thumbnailComplete(ImageReader source) {
+					}
+
+					@Override
+					public void readAborted(ImageReader source) {
+					}
+				});
+				reader.addIIOReadUpdateListener(new IIOReadUpdateListener() {
+					@Override
+					public void imageUpdate(ImageReader source, BufferedImage theImage, int minX, int minY, int width,
+							int height, int periodX, int periodY, int[] bands) {
+						if (minY != rows[0]) {
+							outOfOrder[0]++;
+						}
+						rows[0] += height;
+					}
+
+					@Override
+					public void passStarted(ImageReader source, BufferedImage theImage, int pass, int minPass,
+							int maxPass, int minX, int minY, int periodX, int periodY, int[] bands) {
+					}
+
+					@Override
+					public void passComplete(ImageReader source, BufferedImage theImage) {
+					}
+
+					@Override
+					public void thumbnailPassStarted(ImageReader source, BufferedImage theThumbnail, int pass,
+							int minPass, int maxPass, int minX, int minY, int periodX, int periodY, int[] bands) {
+					}
+
+					@Override
+					public void thumbnailUpdate(ImageReader source, BufferedImage theThumbnail, int minX, int minY,
+							int width, int height, int periodX, int periodY, int[] bands) {
+					}
+
+					@Override
+					public void thumbnailPassComplete(ImageReader source, BufferedImage theThumbnail) {
+					}
+				});
+				int count = StreamingLabeler.label(reader, 128, Connectivity.FOUR, listener);
+				assertEquals(started[0], 1);
+				assertEquals(rows[0], height);
+				assertEquals(outOfOrder[0], 0);
+
+				BufferedImage decoded = ImageIO.read(file);
+				StreamingLabeler labeler = new StreamingLabeler(width, 128, Connectivity.FOUR, listener);
+				int[] row = new int[width];
+				for (int y = 0; y < height; y++) {
+					decoded.getRGB(0, y, width, 1, row, 0, width);
+					labeler.addRow(row);
+				}
+				assertEquals(count, labeler.finish());
+				assertEquals(count, height / 16);
+			} finally {
+				reader.dispose();
+				input.close();
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	// RIGHT - an object is finished as soon as the row below it is empty,
+	// before the rest of the image is labelled. U shape joins two objects
+	// only in its last row
+	@Test
+	public void testObjectsFinishedEarly() {
+		StreamingLabeler labeler = new StreamingLabeler(5, 128, Connectivity.FOUR, listener);
+		labeler.addRow(new int[] { white, black, white, black, black });
+		labeler.addRow(new int[] { white, black, white, black, white });
+		labeler.addRow(new int[] { white, white, white, black, black });
+		assertEquals(properties.size(), 1);
+		// min y, max y, min x, max x, pixels count and label
+		assertEquals(properties.get(0)[0], 1);
+		assertEquals(properties.get(0)[3], 4);
+		labeler.addRow(new int[] { black, black, black, black, black });
+		assertEquals(properties.size(), 2);
+		int[] u = properties.get(1);
+		assertEquals(u[0], 0);
+		assertEquals(u[1], 2);
+		assertEquals(u[2], 0);
+		assertEquals(u[3], 2);
+		assertEquals(u[4], 7);
+		labeler.addRow(new int[] { white, black, black, black, white });
+		assertEquals(labeler.finish(), 4);
+		assertEquals(labeler.countComponents(), 4);
+	}
+
+	// RIGHT - pixels touching at a corner are one object only with
+	// 8-connectivity
+	@Test
+	public void testConnectivity() {
+		StreamingLabeler four = new StreamingLabeler(3, 128, Connectivity.FOUR, listener);
+		StreamingLabeler eight = new StreamingLabeler(3, 128, Connectivity.EIGHT, listener);
+		int[][] rows = new int[][] { { white, black, white }, { black, white, black }, { white, black, white } };
+		for (int[] row : rows) {
+			four.addRow(row);
+			eight.addRow(row);
+		}
+		assertEquals(four.finish(), 5);
+		assertEquals(eight.finish(), 1);
+		assertTrue(properties.size() == 6);
+	}
+
+	// boundary conditions: RANGE
+	@Test(expected = IllegalArgumentException.class)
+	public void testShortRow() {
+		new StreamingLabeler(3, 128, Connectivity.FOUR, listener).addRow(new int[2]);
+	}
+}
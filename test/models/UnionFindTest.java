@@ -0,0 +1,113 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Pawel Paszki
+ * 
+ *         JUnit test case, which tests all public methods from UnionFind
+ *         class. The structure is also tested on a long chain of sites, which
+ *         would build a deep tree without union by rank and path halving
+ */
+public class UnionFindTest {
+
+	private UnionFind unionFind;
+
+	@Before
+	public void setUp() throws Exception {
+		unionFind = new UnionFind(10);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		unionFind = null;
+	}
+
+	// RIGHT - initially each site is its own component
+	@Test
+	public void testInitialState() {
+		assertEquals(unionFind.count(), 10);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(unionFind.find(i), i);
+			assertEquals(unionFind.size(i), 1);
+		}
+	}
+
+	// RIGHT - union merges only once and count is decremented only then
+	@Test
+	public void testUnion() {
+		assertTrue(unionFind.union(0, 1));
+		assertTrue(unionFind.union(2, 3));
+		assertTrue(unionFind.union(1, 3));
+		assertFalse(unionFind.union(0, 2));
+		assertEquals(unionFind.count(), 7);
+		assertTrue(unionFind.connected(0, 3));
+		assertFalse(unionFind.connected(0, 4));
+		assertEquals(unionFind.size(2), 4);
+		assertEquals(unionFind.size(9), 1);
+	}
+
+	// PERFORMANCE characteristics - joining a chain of sites one by one
+	// keeps the trees shallow, so the number of steps stays linear
+	@Test
+	public void testDepthOnChain() {
+		int n = 1 << 16;
+		unionFind = new UnionFind(n);
+		for (int i = 1; i < n; i++) {
+			unionFind.union(i - 1, i);
+		}
+		for (int i = 0; i < n; i++) {
+			unionFind.find(i);
+		}
+		assertEquals(unionFind.count(), 1);
+		assertEquals(unionFind.size(0), n);
+		assertTrue(unionFind.getMaxDepth() <= 16);
+		assertTrue(unionFind.getFindSteps() < 4L * unionFind.getFindCalls());
+	}
+
+	// RIGHT - sites added one by one start in components of their own
+	@Test
+	public void testAdd() {
+		unionFind = new UnionFind(0);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(unionFind.add(), i);
+			if (i > 0 && i % 2 == 0) {
+				unionFind.union(i - 2, i);
+			}
+		}
+		assertEquals(unionFind.sites(), 100);
+		assertEquals(unionFind.count(), 51);
+		assertEquals(unionFind.size(98), 50);
+		assertEquals(unionFind.size(99), 1);
+	}
+
+	// RIGHT - reset structure is the same as a new one
+	@Test
+	public void testReset() {
+		unionFind.union(0, 1);
+		unionFind.union(2, 1);
+		unionFind.reset(5);
+		assertEquals(unionFind.count(), 5);
+		assertEquals(unionFind.sites(), 5);
+		assertEquals(unionFind.getFindCalls(), 0);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(unionFind.find(i), i);
+			assertEquals(unionFind.size(i), 1);
+		}
+		unionFind.reset(20);
+		assertTrue(unionFind.union(0, 19));
+		assertEquals(unionFind.size(19), 2);
+	}
+
+	// boundary conditions: RANGE
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeNumberOfSites() {
+		new UnionFind(-1);
+	}
+}